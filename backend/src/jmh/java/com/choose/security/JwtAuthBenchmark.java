@@ -0,0 +1,100 @@
+package com.choose.security;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 每個請求的 JWT 驗證成本
+ * legacyTripleParse：舊流程（extractEmail + validateToken，每次重建金鑰並解析三次）
+ * singleParse：只解析一次、不使用快取（token 第一次出現時的成本）
+ * cachedClaims：JwtUtil.validateAndExtractClaims，同一 token 之後的請求命中快取
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JwtAuthBenchmark {
+
+    private static final String SECRET = "chooseMVPSecretKey12345678901234567890";
+    private static final long EXPIRATION_MILLIS = 900_000;
+
+    // 同時在線的使用者數（輪流使用各自的 token）
+    @Param({"256"})
+    private int tokenCount;
+
+    private JwtUtil jwtUtil;
+    private JwtParser parser;
+    private String[] tokens;
+    private int next;
+
+    @Setup
+    public void setUp() throws ReflectiveOperationException {
+        jwtUtil = new JwtUtil();
+        setField("secret", SECRET);
+        setField("expiration", EXPIRATION_MILLIS);
+        setField("claimsCacheMaxSize", 10_000);
+        jwtUtil.init();
+
+        parser = Jwts.parser()
+                .verifyWith(Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8)))
+                .build();
+        tokens = new String[tokenCount];
+        for (int i = 0; i < tokenCount; i++) {
+            tokens[i] = jwtUtil.generateToken((long) i + 1, "user" + i + "@example.com", "USER");
+        }
+    }
+
+    @Benchmark
+    public boolean legacyTripleParse() {
+        String token = nextToken();
+        String email = legacyClaims(token).getSubject();
+        return email.equals(legacyClaims(token).getSubject())
+                && !legacyClaims(token).getExpiration().before(new Date());
+    }
+
+    @Benchmark
+    public Claims singleParse() {
+        return parser.parseSignedClaims(nextToken()).getPayload();
+    }
+
+    @Benchmark
+    public Optional<Claims> cachedClaims() {
+        return jwtUtil.validateAndExtractClaims(nextToken());
+    }
+
+    private String nextToken() {
+        String token = tokens[next];
+        next = (next + 1) % tokens.length;
+        return token;
+    }
+
+    // 舊版 JwtUtil.extractAllClaims：每次呼叫重新產生金鑰與 parser
+    private static Claims legacyClaims(String token) {
+        return Jwts.parser()
+                .verifyWith(Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8)))
+                .build()
+                .parseSignedClaims(token)
+                .getPayload();
+    }
+
+    private void setField(String name, Object value) throws ReflectiveOperationException {
+        Field field = JwtUtil.class.getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(jwtUtil, value);
+    }
+}
@@ -0,0 +1,79 @@
+package com.choose.service;
+
+import com.choose.common.CompiledTemplate;
+import com.choose.service.MailTemplateService.MailTemplate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 郵件內文組成的成本（以信箱驗證信為例）
+ * legacyConcatenation：舊版 EmailService 以 + 串接字串
+ * replacePerSend：每次寄送對模板原文做字串取代（未預先編譯的模板）
+ * compiledText：CompiledTemplate 只產生純文字
+ * compiledTextAndHtml：MailTemplateService.render，純文字與 HTML（含跳脫）兩個版本
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MailTemplateRenderBenchmark {
+
+    private String name;
+    private String verifyUrl;
+    private Map<String, String> values;
+    private String textSource;
+    private CompiledTemplate compiledText;
+    private MailTemplateService mailTemplateService;
+
+    @Setup
+    public void setUp() throws IOException {
+        name = "王小明";
+        verifyUrl = "https://choose.zeabur.app/verify-email?token="
+                + "MTAwMXxFTUFJTF9WRVJJRll8MTc2MDg3NjAwMHww.q3Jk7c9mZ0rXhYb2T8vNwA1sLpE4uGdKfH6yR5oViMc";
+        values = Map.of("name", name, "url", verifyUrl);
+
+        try (InputStream in = new ClassPathResource("mail-templates/verify-email.txt").getInputStream()) {
+            textSource = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        compiledText = CompiledTemplate.compile(textSource);
+        mailTemplateService = new MailTemplateService();
+        mailTemplateService.init();
+    }
+
+    @Benchmark
+    public String legacyConcatenation() {
+        return "親愛的 " + name + "，\n\n" +
+                "感謝您註冊 Choose！\n\n" +
+                "請點擊以下連結驗證您的信箱：\n" +
+                verifyUrl + "\n\n" +
+                "此連結將在 24 小時後失效。\n\n" +
+                "如果您沒有註冊 Choose，請忽略此信件。\n\n" +
+                "Choose 團隊";
+    }
+
+    @Benchmark
+    public String replacePerSend() {
+        return textSource.replace("{name}", name).replace("{url}", verifyUrl);
+    }
+
+    @Benchmark
+    public String compiledText() {
+        return compiledText.render(values);
+    }
+
+    @Benchmark
+    public MailTemplateService.RenderedMail compiledTextAndHtml() {
+        return mailTemplateService.render(MailTemplate.EMAIL_VERIFY, values);
+    }
+}
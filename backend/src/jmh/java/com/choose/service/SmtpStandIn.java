@@ -0,0 +1,111 @@
+package com.choose.service;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 行程內的 SMTP 替身伺服器（只實作寄送所需的指令，郵件內容直接丟棄）
+ * 每條連線建立時延遲 handshakeDelayMillis，模擬真實供應商 TCP + STARTTLS + AUTH 的往返時間
+ */
+class SmtpStandIn implements Closeable {
+
+    private final ServerSocket serverSocket;
+    private final long handshakeDelayMillis;
+    private final ExecutorService executor = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "smtp-stand-in");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicLong connectionsAccepted = new AtomicLong();
+    private final AtomicLong messagesReceived = new AtomicLong();
+
+    SmtpStandIn(long handshakeDelayMillis) throws IOException {
+        this.handshakeDelayMillis = handshakeDelayMillis;
+        serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        executor.execute(this::acceptLoop);
+    }
+
+    int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    long getConnectionsAccepted() {
+        return connectionsAccepted.get();
+    }
+
+    long getMessagesReceived() {
+        return messagesReceived.get();
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        executor.shutdownNow();
+    }
+
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                executor.execute(() -> handle(socket));
+            } catch (IOException e) {
+                return; // 伺服器已關閉
+            }
+        }
+    }
+
+    private void handle(Socket socket) {
+        try (socket;
+             BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+             Writer writer = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.US_ASCII))) {
+            connectionsAccepted.incrementAndGet();
+            Thread.sleep(handshakeDelayMillis);
+            reply(writer, "220 localhost ESMTP stand-in");
+
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String command = (line.length() > 4 ? line.substring(0, 4) : line).toUpperCase(Locale.ROOT);
+                switch (command) {
+                    case "EHLO" -> reply(writer, "250-localhost\r\n250 8BITMIME");
+                    case "HELO", "MAIL", "RCPT", "RSET", "NOOP" -> reply(writer, "250 OK");
+                    case "DATA" -> {
+                        reply(writer, "354 End data with <CR><LF>.<CR><LF>");
+                        while ((line = reader.readLine()) != null && !line.equals(".")) {
+                            // 內容不保留
+                        }
+                        messagesReceived.incrementAndGet();
+                        reply(writer, "250 OK queued");
+                    }
+                    case "QUIT" -> {
+                        reply(writer, "221 Bye");
+                        return;
+                    }
+                    default -> reply(writer, "502 Command not implemented");
+                }
+            }
+        } catch (IOException e) {
+            // 用戶端中斷連線
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void reply(Writer writer, String response) throws IOException {
+        writer.write(response);
+        writer.write("\r\n");
+        writer.flush();
+    }
+}
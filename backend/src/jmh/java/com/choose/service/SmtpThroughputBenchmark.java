@@ -0,0 +1,100 @@
+package com.choose.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.mail.javamail.MimeMessageHelper;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 對行程內 SMTP 替身寄送的吞吐量（封 / 秒）
+ * perMessageConnection：舊版 EmailService 的 mailSender.send，每封都重新建立連線
+ * pooledConnection：經由 SmtpTransportPool 借用連線，多封郵件共用同一條連線
+ * 不經過 AdaptiveMailThrottle（速率上限是刻意的，會掩蓋連線成本的差異）
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class SmtpThroughputBenchmark {
+
+    // 0 = 只有本機 TCP 成本；20 = 大致相當於對外部供應商 STARTTLS + AUTH 的往返
+    @Param({"0", "20"})
+    private long handshakeDelayMillis;
+
+    private SmtpStandIn standIn;
+    private JavaMailSenderImpl mailSender;
+    private SmtpTransportPool transportPool;
+    private MimeMessage message;
+
+    @Setup
+    public void setUp() throws IOException, MessagingException, ReflectiveOperationException {
+        standIn = new SmtpStandIn(handshakeDelayMillis);
+
+        mailSender = new JavaMailSenderImpl();
+        mailSender.setHost("localhost");
+        mailSender.setPort(standIn.getPort());
+        mailSender.setProtocol("smtp");
+
+        transportPool = new SmtpTransportPool(mailSender, new SimpleMeterRegistry());
+        setField("maxConnections", 1);
+        setField("maxMessagesPerConnection", 100);
+        setField("idleTimeoutSeconds", 60L);
+        setField("borrowTimeoutMillis", 30_000L);
+        transportPool.init();
+
+        message = mailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(message, false, StandardCharsets.UTF_8.name());
+        helper.setFrom("noreply@example.com");
+        helper.setTo("customer@example.com");
+        helper.setSubject("訂單狀態更新");
+        helper.setText("您好，\n\n訂單 #1001：已出貨\n\n謝謝您的購買！");
+        message.saveChanges();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        transportPool.shutdown();
+        standIn.close();
+        if (standIn.getMessagesReceived() == 0) {
+            throw new IllegalStateException("SMTP stand-in received no messages");
+        }
+    }
+
+    @Benchmark
+    public void perMessageConnection() {
+        mailSender.send(message);
+    }
+
+    @Benchmark
+    public void pooledConnection() throws MessagingException {
+        SmtpTransportPool.PooledTransport pooled = transportPool.borrow();
+        boolean healthy = false;
+        try {
+            pooled.getTransport().sendMessage(message, message.getAllRecipients());
+            pooled.recordSent();
+            healthy = true;
+        } finally {
+            transportPool.release(pooled, healthy);
+        }
+    }
+
+    private void setField(String name, Object value) throws ReflectiveOperationException {
+        Field field = SmtpTransportPool.class.getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(transportPool, value);
+    }
+}
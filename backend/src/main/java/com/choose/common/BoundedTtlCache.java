@@ -0,0 +1,95 @@
+package com.choose.common;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 有容量上限與存活時間的 LRU 快取（執行緒安全）
+ * 超過容量時淘汰最久未使用的項目，過期項目於讀取時移除
+ */
+public class BoundedTtlCache<K, V> {
+
+    private final int maxSize;
+    private final long defaultTtlMillis;
+    private final LinkedHashMap<K, Entry<V>> entries;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public BoundedTtlCache(int maxSize, Duration defaultTtl) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive");
+        }
+        this.maxSize = maxSize;
+        this.defaultTtlMillis = defaultTtl.toMillis();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                return size() > BoundedTtlCache.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * 取得未過期的值，不存在或已過期時回傳 null
+     */
+    public V get(K key) {
+        long now = System.currentTimeMillis();
+        synchronized (entries) {
+            Entry<V> entry = entries.get(key);
+            if (entry != null) {
+                if (entry.expiresAtMillis() > now) {
+                    hits.increment();
+                    return entry.value();
+                }
+                entries.remove(key);
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+    public void put(K key, V value) {
+        put(key, value, System.currentTimeMillis() + defaultTtlMillis);
+    }
+
+    /**
+     * 以指定的到期時間放入（例如 JWT 的 exp），不會超過預設存活時間
+     */
+    public void put(K key, V value, long expiresAtMillis) {
+        long expiresAt = Math.min(expiresAtMillis, System.currentTimeMillis() + defaultTtlMillis);
+        synchronized (entries) {
+            entries.put(key, new Entry<>(value, expiresAt));
+        }
+    }
+
+    public void invalidate(K key) {
+        synchronized (entries) {
+            entries.remove(key);
+        }
+    }
+
+    public void invalidateAll() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    private record Entry<V>(V value, long expiresAtMillis) {
+    }
+}
@@ -0,0 +1,19 @@
+package com.choose.common;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * 取得用戶端 IP
+ * 不直接讀取 X-Forwarded-For（用戶端可任意偽造）；部署於反向代理後方時，
+ * 由 Tomcat RemoteIpValve（server.forward-headers-strategy=native）只信任
+ * server.tomcat.remoteip.internal-proxies 內的代理，並以最右側不受信任的位址改寫 remoteAddr
+ */
+public final class ClientIpResolver {
+
+    private ClientIpResolver() {
+    }
+
+    public static String resolve(HttpServletRequest request) {
+        return request.getRemoteAddr();
+    }
+}
@@ -0,0 +1,94 @@
+package com.choose.common;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+/**
+ * 預先編譯的文字模板，變數語法為 {name}
+ * 解析一次後保存為「文字 / 變數」片段，render 時依序寫入執行緒共用的 StringBuilder，
+ * 不會重新掃描模板，也不會產生中間字串
+ */
+public final class CompiledTemplate {
+
+    // 單一執行緒重複使用的 builder；過大時丟棄，避免長期佔用記憶體
+    private static final int MAX_POOLED_CAPACITY = 64 * 1024;
+    private static final ThreadLocal<StringBuilder> BUILDERS = ThreadLocal.withInitial(() -> new StringBuilder(1024));
+
+    private final String[] literals;
+    private final String[] placeholders; // 與 literals 交錯：literal[0] placeholder[0] literal[1] ...
+    private final int estimatedLength;
+
+    private CompiledTemplate(List<String> literals, List<String> placeholders) {
+        this.literals = literals.toArray(String[]::new);
+        this.placeholders = placeholders.toArray(String[]::new);
+        int length = 0;
+        for (String literal : this.literals) {
+            length += literal.length();
+        }
+        this.estimatedLength = length + this.placeholders.length * 16;
+    }
+
+    /**
+     * 解析模板；不符合 {identifier} 格式的大括號視為一般文字
+     */
+    public static CompiledTemplate compile(String source) {
+        List<String> literals = new ArrayList<>();
+        List<String> placeholders = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+        int i = 0;
+        while (i < source.length()) {
+            char c = source.charAt(i);
+            if (c == '{') {
+                int end = i + 1;
+                while (end < source.length() && isIdentifierChar(source.charAt(end))) {
+                    end++;
+                }
+                if (end > i + 1 && end < source.length() && source.charAt(end) == '}') {
+                    literals.add(literal.toString());
+                    literal.setLength(0);
+                    placeholders.add(source.substring(i + 1, end));
+                    i = end + 1;
+                    continue;
+                }
+            }
+            literal.append(c);
+            i++;
+        }
+        literals.add(literal.toString());
+        return new CompiledTemplate(literals, placeholders);
+    }
+
+    public String render(Map<String, ?> values) {
+        return render(values, UnaryOperator.identity());
+    }
+
+    /**
+     * @param escaper 套用在變數值上（例如 HTML 跳脫），模板本身的文字不處理
+     */
+    public String render(Map<String, ?> values, UnaryOperator<String> escaper) {
+        StringBuilder sb = BUILDERS.get();
+        sb.setLength(0);
+        sb.ensureCapacity(estimatedLength);
+        try {
+            sb.append(literals[0]);
+            for (int i = 0; i < placeholders.length; i++) {
+                Object value = values.get(placeholders[i]);
+                if (value != null) {
+                    sb.append(escaper.apply(value.toString()));
+                }
+                sb.append(literals[i + 1]);
+            }
+            return sb.toString();
+        } finally {
+            if (sb.capacity() > MAX_POOLED_CAPACITY) {
+                BUILDERS.remove();
+            }
+        }
+    }
+
+    private static boolean isIdentifierChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+    }
+}
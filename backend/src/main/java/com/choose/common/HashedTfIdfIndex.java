@@ -0,0 +1,236 @@
+package com.choose.common;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 記憶體內的文字相似度索引（執行緒安全）
+ * 文字斷詞為中日韓字元 bigram 與英數單字，以 feature hashing 映射到固定維度，
+ * 每份文件只保存排序後的 bucket 與詞頻（int[] / float[]）；
+ * IDF 以各 bucket 的文件頻率即時計算，新增 / 刪除文件只需調整該文件出現過的 bucket
+ */
+public final class HashedTfIdfIndex {
+
+    private final int dimensions;
+    private final int[] documentFrequency;
+    private final Map<Long, Vector> documents = new HashMap<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * @param dimensions hash 維度，須為 2 的次方
+     */
+    public HashedTfIdfIndex(int dimensions) {
+        if (dimensions <= 0 || Integer.bitCount(dimensions) != 1) {
+            throw new IllegalArgumentException("dimensions must be a power of two");
+        }
+        this.dimensions = dimensions;
+        this.documentFrequency = new int[dimensions];
+    }
+
+    /**
+     * 新增或取代文件；沒有任何詞彙的文字視為移除
+     */
+    public void put(long id, String text) {
+        Vector vector = vectorize(text);
+        lock.writeLock().lock();
+        try {
+            Vector previous = documents.remove(id);
+            if (previous != null) {
+                adjustFrequency(previous, -1);
+            }
+            if (vector.buckets.length > 0) {
+                documents.put(id, vector);
+                adjustFrequency(vector, 1);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            Vector previous = documents.remove(id);
+            if (previous != null) {
+                adjustFrequency(previous, -1);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 以 TF-IDF 餘弦相似度取出最相近的 k 份文件（由高到低）
+     * @param excludeId 不列入結果的文件（例如查詢本身）；不需要時傳入 null
+     */
+    public List<Match> topK(String text, int k, Long excludeId) {
+        Vector query = vectorize(text);
+        if (query.buckets.length == 0 || k <= 0) {
+            return List.of();
+        }
+        PriorityQueue<Match> best = new PriorityQueue<>(k + 1, Comparator.comparingDouble(Match::score));
+
+        lock.readLock().lock();
+        try {
+            float[] idf = new float[dimensions];
+            double n = documents.size();
+            for (int i = 0; i < dimensions; i++) {
+                idf[i] = (float) (Math.log((1 + n) / (1 + documentFrequency[i])) + 1);
+            }
+
+            float[] queryWeights = new float[query.buckets.length];
+            double queryNorm = 0;
+            for (int i = 0; i < query.buckets.length; i++) {
+                queryWeights[i] = query.weights[i] * idf[query.buckets[i]];
+                queryNorm += queryWeights[i] * queryWeights[i];
+            }
+            queryNorm = Math.sqrt(queryNorm);
+
+            for (Map.Entry<Long, Vector> entry : documents.entrySet()) {
+                if (excludeId != null && entry.getKey().longValue() == excludeId) {
+                    continue;
+                }
+                float score = cosine(query.buckets, queryWeights, queryNorm, entry.getValue(), idf);
+                if (score <= 0) {
+                    continue;
+                }
+                if (best.size() < k) {
+                    best.add(new Match(entry.getKey(), score));
+                } else if (score > best.peek().score()) {
+                    best.poll();
+                    best.add(new Match(entry.getKey(), score));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<Match> result = new ArrayList<>(best);
+        result.sort(Comparator.comparingDouble(Match::score).reversed());
+        return result;
+    }
+
+    // 兩個 bucket 陣列皆已排序，以合併方式計算內積
+    private static float cosine(int[] queryBuckets, float[] queryWeights, double queryNorm,
+                                Vector document, float[] idf) {
+        double dot = 0;
+        double documentNorm = 0;
+        int q = 0;
+        for (int d = 0; d < document.buckets.length; d++) {
+            int bucket = document.buckets[d];
+            float weight = document.weights[d] * idf[bucket];
+            documentNorm += weight * weight;
+            while (q < queryBuckets.length && queryBuckets[q] < bucket) {
+                q++;
+            }
+            if (q < queryBuckets.length && queryBuckets[q] == bucket) {
+                dot += weight * queryWeights[q];
+            }
+        }
+        if (dot == 0) {
+            return 0;
+        }
+        return (float) (dot / (Math.sqrt(documentNorm) * queryNorm));
+    }
+
+    private void adjustFrequency(Vector vector, int delta) {
+        for (int bucket : vector.buckets) {
+            documentFrequency[bucket] += delta;
+        }
+    }
+
+    /**
+     * 斷詞並計算各 bucket 的詞頻權重（1 + ln tf）
+     */
+    private Vector vectorize(String text) {
+        if (text == null || text.isBlank()) {
+            return Vector.EMPTY;
+        }
+        Map<Integer, Integer> counts = new HashMap<>();
+        String normalized = text.toLowerCase(Locale.ROOT);
+        StringBuilder word = new StringBuilder();
+        int previousCjk = -1;
+        int i = 0;
+        while (i < normalized.length()) {
+            int codePoint = normalized.codePointAt(i);
+            i += Character.charCount(codePoint);
+            if (isCjk(codePoint)) {
+                addWord(word, counts);
+                if (previousCjk >= 0) {
+                    count(counts, mix(previousCjk * 31 + codePoint));
+                } else if (i >= normalized.length() || !isCjk(normalized.codePointAt(i))) {
+                    // 單獨出現的中文字以單字計
+                    count(counts, mix(codePoint));
+                }
+                previousCjk = codePoint;
+            } else {
+                previousCjk = -1;
+                if (Character.isLetterOrDigit(codePoint)) {
+                    word.appendCodePoint(codePoint);
+                } else {
+                    addWord(word, counts);
+                }
+            }
+        }
+        addWord(word, counts);
+
+        int[] buckets = counts.keySet().stream().mapToInt(Integer::intValue).sorted().toArray();
+        float[] weights = new float[buckets.length];
+        for (int b = 0; b < buckets.length; b++) {
+            weights[b] = (float) (1 + Math.log(counts.get(buckets[b])));
+        }
+        return new Vector(buckets, weights);
+    }
+
+    private void addWord(StringBuilder word, Map<Integer, Integer> counts) {
+        if (word.length() > 1) {
+            // 與 CJK bigram 使用不同的 seed，避免相同 hash 值互相干擾
+            count(counts, mix(word.toString().hashCode() ^ 0x5bd1e995));
+        }
+        word.setLength(0);
+    }
+
+    private void count(Map<Integer, Integer> counts, int hash) {
+        counts.merge(hash & (dimensions - 1), 1, Integer::sum);
+    }
+
+    // murmur3 finalizer：讓相近的字元組合分散到不同 bucket
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    private static boolean isCjk(int codePoint) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(codePoint);
+        return script == Character.UnicodeScript.HAN
+                || script == Character.UnicodeScript.HIRAGANA
+                || script == Character.UnicodeScript.KATAKANA
+                || script == Character.UnicodeScript.HANGUL;
+    }
+
+    public record Match(long id, float score) {
+    }
+
+    private record Vector(int[] buckets, float[] weights) {
+        static final Vector EMPTY = new Vector(new int[0], new float[0]);
+    }
+}
@@ -0,0 +1,17 @@
+package com.choose.common;
+
+import lombok.Getter;
+
+/**
+ * 超過請求頻率限制，回應 429 並附 Retry-After
+ */
+@Getter
+public class RateLimitExceededException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public RateLimitExceededException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
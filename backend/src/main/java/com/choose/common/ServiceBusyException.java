@@ -0,0 +1,17 @@
+package com.choose.common;
+
+import lombok.Getter;
+
+/**
+ * 伺服器資源暫時不足（例如工作佇列已滿），回應 503 並附 Retry-After
+ */
+@Getter
+public class ServiceBusyException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public ServiceBusyException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
@@ -1,5 +1,7 @@
 package com.choose.config;
 
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
@@ -10,11 +12,47 @@ import org.springframework.security.crypto.password.PasswordEncoder;
  * Isolated to avoid circular dependency when SecurityConfig also depends on other beans.
  */
 @Configuration
+@Slf4j
 public class PasswordConfig {
 
+    private static final String CALIBRATION_PASSWORD = "calibration-Password-123";
+
+    // 單次雜湊的目標耗時；啟動時依實際硬體挑選 BCrypt cost
+    @Value("${app.password.target-hash-ms:250}")
+    private long targetHashMillis;
+
+    @Value("${app.password.min-strength:10}")
+    private int minStrength;
+
+    @Value("${app.password.max-strength:14}")
+    private int maxStrength;
+
     @Bean
     public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+        int strength = calibrateStrength();
+        log.info("BCrypt strength calibrated: strength={}, targetMs={}", strength, targetHashMillis);
+        return new BCryptPasswordEncoder(strength);
     }
-}
 
+    /**
+     * 從最低 cost 開始量測，每加 1 耗時約翻倍；取不超過目標耗時的最大 cost
+     */
+    private int calibrateStrength() {
+        // 預熱，避免 JIT 尚未編譯時高估耗時
+        new BCryptPasswordEncoder(4).encode(CALIBRATION_PASSWORD);
+
+        int strength = minStrength;
+        long elapsed = measure(strength);
+        while (strength < maxStrength && elapsed * 2 <= targetHashMillis) {
+            strength++;
+            elapsed *= 2;
+        }
+        return strength;
+    }
+
+    private long measure(int strength) {
+        long start = System.nanoTime();
+        new BCryptPasswordEncoder(strength).encode(CALIBRATION_PASSWORD);
+        return Math.max(1, (System.nanoTime() - start) / 1_000_000);
+    }
+}
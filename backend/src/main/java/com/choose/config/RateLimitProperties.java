@@ -0,0 +1,39 @@
+package com.choose.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 各端點的請求頻率限制設定（app.rate-limit.*）
+ * 每個端點可分別設定以 IP 與 email 為 key 的 token bucket
+ */
+@Component
+@ConfigurationProperties(prefix = "app.rate-limit")
+@Data
+public class RateLimitProperties {
+
+    private boolean enabled = true;
+
+    // 全部 bucket 的數量上限，超過時依 LRU 淘汰
+    private int maxKeys = 100_000;
+
+    private Map<String, Endpoint> endpoints = new HashMap<>();
+
+    @Data
+    public static class Endpoint {
+        private Limit ip;
+        private Limit email;
+    }
+
+    @Data
+    public static class Limit {
+        // bucket 容量（可瞬間連續請求的次數）
+        private int capacity;
+        // 每分鐘補充的 token 數
+        private double refillPerMinute;
+    }
+}
@@ -1,10 +1,16 @@
 package com.choose.controller;
 
 import com.choose.common.ApiResponse;
+import com.choose.common.ClientIpResolver;
 import com.choose.model.User;
 import com.choose.model.VerificationToken;
 import com.choose.security.JwtUtil;
+import com.choose.security.RateLimiter;
+import com.choose.security.RevokedTokenRegistry;
 import com.choose.service.EmailService;
+import com.choose.service.EmailTokenService;
+import com.choose.service.PasswordHashingService;
+import com.choose.service.RefreshTokenService;
 import com.choose.service.UserService;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
@@ -14,15 +20,17 @@ import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseCookie;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.*;
 
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Pattern;
 import jakarta.validation.constraints.Size;
 
+import java.util.concurrent.CompletableFuture;
+
 @RestController
 @RequestMapping("/api/auth")
 @RequiredArgsConstructor
@@ -30,65 +38,93 @@ import jakarta.validation.constraints.Size;
 public class AuthController {
     private final UserService userService;
     private final JwtUtil jwtUtil;
-    private final PasswordEncoder passwordEncoder;
     private final EmailService emailService;
+    private final EmailTokenService emailTokenService;
+    private final PasswordHashingService passwordHashingService;
+    private final RefreshTokenService refreshTokenService;
+    private final RevokedTokenRegistry revokedTokenRegistry;
+    private final RateLimiter rateLimiter;
 
-    private static final String AUTH_COOKIE_NAME = "auth_token";
+    private static final String AUTH_COOKIE_NAME = JwtUtil.AUTH_COOKIE_NAME;
+    private static final String REFRESH_COOKIE_NAME = "refresh_token";
     
-    @Value("${jwt.expiration:86400000}")
-    private Long jwtExpiration; // 24 hours in milliseconds
+    @Value("${jwt.expiration:900000}")
+    private Long jwtExpiration; // 15 minutes in milliseconds
 
     /**
      * 建立 HttpOnly Cookie
      */
     private ResponseCookie createAuthCookie(String token) {
-        return ResponseCookie.from(AUTH_COOKIE_NAME, token)
+        return createCookie(AUTH_COOKIE_NAME, token, jwtExpiration / 1000);
+    }
+
+    /**
+     * 建立 refresh token Cookie（有效期較長，每次刷新都會換新）
+     */
+    private ResponseCookie createRefreshCookie(String refreshToken) {
+        return createCookie(REFRESH_COOKIE_NAME, refreshToken, refreshTokenService.getRefreshExpiration() / 1000);
+    }
+
+    /**
+     * 建立清除 Cookie
+     */
+    private ResponseCookie createClearCookie(String name) {
+        return createCookie(name, "", 0);
+    }
+
+    private ResponseCookie createCookie(String name, String value, long maxAgeSeconds) {
+        return ResponseCookie.from(name, value)
                 .httpOnly(true)
                 .secure(true) // HTTPS 必須為 true
                 .path("/")
-                .maxAge(jwtExpiration / 1000) // 轉換為秒
+                .maxAge(maxAgeSeconds)
                 .sameSite("None") // 跨域請求需要 None
                 .build();
     }
 
     /**
-     * 建立清除 Cookie
+     * 登入成功：簽發 access token 與 refresh token，並寫入 Cookie
      */
-    private ResponseCookie createClearCookie() {
-        return ResponseCookie.from(AUTH_COOKIE_NAME, "")
-                .httpOnly(true)
-                .secure(true)
-                .path("/")
-                .maxAge(0)
-                .sameSite("None")
-                .build();
+    private ResponseEntity<ApiResponse<UserResponse>> createSession(User user, String refreshToken, String message) {
+        String token = jwtUtil.generateToken(user.getUserId(), user.getEmail(), user.getRole().name());
+        return ResponseEntity.ok()
+                .header(HttpHeaders.SET_COOKIE, createAuthCookie(token).toString())
+                .header(HttpHeaders.SET_COOKIE, createRefreshCookie(refreshToken).toString())
+                .body(ApiResponse.success(message, new UserResponse(user, token)));
     }
 
+    /**
+     * 註冊、登入與設定密碼回傳 CompletableFuture：BCrypt 在雜湊執行緒池計算期間不佔用 Tomcat 執行緒
+     */
     @PostMapping("/register")
-    public ResponseEntity<ApiResponse<String>> register(@Valid @RequestBody RegisterRequest request) {
+    public CompletableFuture<ResponseEntity<ApiResponse<String>>> register(@Valid @RequestBody RegisterRequest request,
+            HttpServletRequest httpRequest) {
         log.info("Registration attempt: email={}", request.getEmail());
+        rateLimiter.check("register", ClientIpResolver.resolve(httpRequest), request.getEmail());
         
         // 使用簡化註冊（自動產生密碼）
-        User savedUser = userService.registerSimple(request.getEmail(), request.getName());
-        
-        // 發送驗證信
-        try {
-            emailService.sendVerificationEmail(savedUser);
-        } catch (Exception e) {
-            log.error("Failed to send verification email: {}", e.getMessage());
-            // 不中斷註冊流程，但記錄錯誤
-        }
-        
-        log.info("Registration successful: userId={}, email={}", savedUser.getUserId(), savedUser.getEmail());
-        return ResponseEntity.ok(ApiResponse.success("註冊成功！請查收驗證信件以完成註冊", (String) null));
+        return userService.registerSimple(request.getEmail(), request.getName()).thenApply(savedUser -> {
+            // 發送驗證信
+            try {
+                emailService.sendVerificationEmail(savedUser);
+            } catch (Exception e) {
+                log.error("Failed to send verification email: {}", e.getMessage());
+                // 不中斷註冊流程，但記錄錯誤
+            }
+
+            log.info("Registration successful: userId={}, email={}", savedUser.getUserId(), savedUser.getEmail());
+            return ResponseEntity.ok(ApiResponse.success("註冊成功！請查收驗證信件以完成註冊", (String) null));
+        });
     }
 
     /**
      * Magic Link 登入 - 發送登入驗證信
      */
     @PostMapping("/login-magic")
-    public ResponseEntity<ApiResponse<String>> loginMagic(@Valid @RequestBody ForgotPasswordRequest request) {
+    public ResponseEntity<ApiResponse<String>> loginMagic(@Valid @RequestBody ForgotPasswordRequest request,
+            HttpServletRequest httpRequest) {
         log.info("Magic link login request: email={}", request.getEmail());
+        rateLimiter.check("login-magic", ClientIpResolver.resolve(httpRequest), request.getEmail());
         
         userService.findByEmail(request.getEmail()).ifPresent(user -> {
             try {
@@ -103,33 +139,25 @@ public class AuthController {
     }
 
     @PostMapping("/login")
-    public ResponseEntity<ApiResponse<UserResponse>> login(@Valid @RequestBody LoginRequest request) {
+    public CompletableFuture<ResponseEntity<ApiResponse<UserResponse>>> login(@Valid @RequestBody LoginRequest request,
+            HttpServletRequest httpRequest) {
         log.info("Login attempt: email={}", request.getEmail());
+        rateLimiter.check("login", ClientIpResolver.resolve(httpRequest), request.getEmail());
         
-        User user = userService.findByEmail(request.getEmail())
-                .orElse(null);
-        
-        if (user == null) {
-            log.warn("Login failed: User not found, email={}", request.getEmail());
-            return ResponseEntity.status(401)
-                    .body(ApiResponse.error("Invalid email or password"));
-        }
-        
-        if (!passwordEncoder.matches(request.getPassword(), user.getPassword())) {
-            log.warn("Login failed: Invalid password, email={}", request.getEmail());
-            return ResponseEntity.status(401)
-                    .body(ApiResponse.error("Invalid email or password"));
-        }
-        
-        // Generate token and set as HttpOnly cookie
-        String token = jwtUtil.generateToken(user.getUserId(), user.getEmail(), user.getRole().name());
-        ResponseCookie cookie = createAuthCookie(token);
-        
-        log.info("Login successful: userId={}, email={}, role={}", 
-                user.getUserId(), user.getEmail(), user.getRole());
-        return ResponseEntity.ok()
-                .header(HttpHeaders.SET_COOKIE, cookie.toString())
-                .body(ApiResponse.success("Login successful", new UserResponse(user, token)));
+        // 密碼驗證在獨立的雜湊執行緒池執行，忙碌時回應 503
+        return userService.authenticate(request.getEmail(), request.getPassword()).thenApply(authenticated -> {
+            User user = authenticated.orElse(null);
+            if (user == null) {
+                log.warn("Login failed: Invalid credentials, email={}", request.getEmail());
+                return ResponseEntity.status(401)
+                        .body(ApiResponse.<UserResponse>error("Invalid email or password"));
+            }
+
+            log.info("Login successful: userId={}, email={}, role={}",
+                    user.getUserId(), user.getEmail(), user.getRole());
+            // Generate tokens and set as HttpOnly cookies
+            return createSession(user, refreshTokenService.issue(user.getUserId()), "Login successful");
+        });
     }
 
     /**
@@ -139,24 +167,11 @@ public class AuthController {
     public ResponseEntity<ApiResponse<UserResponse>> verifyEmail(@RequestBody VerifyEmailRequest request) {
         log.info("Email verification attempt: token={}", request.getToken());
         
-        return emailService.validateToken(request.getToken())
-                .filter(t -> t.getType() == VerificationToken.TokenType.EMAIL_VERIFY)
-                .map(token -> {
-                    User user = token.getUser();
-                    userService.verifyEmail(user.getUserId());
-                    emailService.deleteToken(token);
-                    
-                    // 自動登入 - 產生 JWT Token
-                    String jwtToken = jwtUtil.generateToken(user.getUserId(), user.getEmail(), user.getRole().name());
-                    ResponseCookie cookie = createAuthCookie(jwtToken);
-                    
-                    // 更新 user 狀態
-                    user.setEmailVerified(true);
-                    
+        return userService.verifyEmailWithToken(request.getToken())
+                .map(user -> {
                     log.info("Email verified and auto-login: userId={}", user.getUserId());
-                    return ResponseEntity.ok()
-                            .header(HttpHeaders.SET_COOKIE, cookie.toString())
-                            .body(ApiResponse.success("信箱驗證成功！已自動登入", new UserResponse(user, jwtToken)));
+                    // 自動登入 - 產生 JWT Token
+                    return createSession(user, refreshTokenService.issue(user.getUserId()), "信箱驗證成功！已自動登入");
                 })
                 .orElseGet(() -> {
                     log.warn("Email verification failed: invalid or expired token");
@@ -171,20 +186,11 @@ public class AuthController {
     public ResponseEntity<ApiResponse<UserResponse>> loginVerify(@RequestBody VerifyEmailRequest request) {
         log.info("Magic link login verification: token={}", request.getToken());
         
-        return emailService.validateToken(request.getToken())
-                .filter(t -> t.getType() == VerificationToken.TokenType.LOGIN_LINK)
-                .map(token -> {
-                    User user = token.getUser();
-                    emailService.deleteToken(token);
-                    
-                    // 產生 JWT Token
-                    String jwtToken = jwtUtil.generateToken(user.getUserId(), user.getEmail(), user.getRole().name());
-                    ResponseCookie cookie = createAuthCookie(jwtToken);
-                    
+        return emailTokenService.consume(request.getToken(), VerificationToken.TokenType.LOGIN_LINK)
+                .flatMap(userService::findById)
+                .map(user -> {
                     log.info("Magic link login successful: userId={}", user.getUserId());
-                    return ResponseEntity.ok()
-                            .header(HttpHeaders.SET_COOKIE, cookie.toString())
-                            .body(ApiResponse.success("登入成功", new UserResponse(user, jwtToken)));
+                    return createSession(user, refreshTokenService.issue(user.getUserId()), "登入成功");
                 })
                 .orElseGet(() -> {
                     log.warn("Magic link login failed: invalid or expired token");
@@ -200,13 +206,14 @@ public class AuthController {
         if (user == null) {
             return ResponseEntity.status(401).body(ApiResponse.error("請先登入"));
         }
+        User currentUser = userService.loadCurrentUser(user);
         
-        if (user.getEmailVerified()) {
+        if (currentUser.getEmailVerified()) {
             return ResponseEntity.badRequest().body(ApiResponse.error("您的信箱已經驗證過了"));
         }
         
         try {
-            emailService.sendVerificationEmail(user);
+            emailService.sendVerificationEmail(currentUser);
             return ResponseEntity.ok(ApiResponse.success("驗證信已重新發送，請查收您的信箱", (String) null));
         } catch (Exception e) {
             log.error("Failed to resend verification email: {}", e.getMessage());
@@ -218,8 +225,10 @@ public class AuthController {
      * 忘記密碼 - 發送重設連結
      */
     @PostMapping("/forgot-password")
-    public ResponseEntity<ApiResponse<String>> forgotPassword(@Valid @RequestBody ForgotPasswordRequest request) {
+    public ResponseEntity<ApiResponse<String>> forgotPassword(@Valid @RequestBody ForgotPasswordRequest request,
+            HttpServletRequest httpRequest) {
         log.info("Password reset request: email={}", request.getEmail());
+        rateLimiter.check("forgot-password", ClientIpResolver.resolve(httpRequest), request.getEmail());
         
         // 統一回應，避免洩漏帳號是否存在
         userService.findByEmail(request.getEmail()).ifPresent(user -> {
@@ -237,61 +246,67 @@ public class AuthController {
      * 重設密碼
      */
     @PostMapping("/reset-password")
-    public ResponseEntity<ApiResponse<String>> resetPassword(@Valid @RequestBody ResetPasswordRequest request) {
+    public CompletableFuture<ResponseEntity<ApiResponse<String>>> resetPassword(
+            @Valid @RequestBody ResetPasswordRequest request) {
         log.info("Password reset attempt: token={}", request.getToken());
         
-        return emailService.validateToken(request.getToken())
-                .filter(t -> t.getType() == VerificationToken.TokenType.PASSWORD_RESET)
-                .map(token -> {
-                    User user = token.getUser();
-                    userService.resetPassword(user.getUserId(), request.getNewPassword());
-                    emailService.deleteToken(token);
-                    log.info("Password reset successfully: userId={}", user.getUserId());
-                    return ResponseEntity.ok(ApiResponse.success("密碼重設成功，請使用新密碼登入", (String) null));
-                })
-                .orElseGet(() -> {
-                    log.warn("Password reset failed: invalid or expired token");
-                    return ResponseEntity.badRequest().body(ApiResponse.error("重設連結無效或已過期"));
-                });
+        // 先排除無效連結再計算雜湊；token 在寫入新密碼的同一交易中使用
+        if (!emailTokenService.isUsable(request.getToken(), VerificationToken.TokenType.PASSWORD_RESET, null)) {
+            log.warn("Password reset failed: invalid or expired token");
+            return CompletableFuture.completedFuture(
+                    ResponseEntity.badRequest().body(ApiResponse.error("重設連結無效或已過期")));
+        }
+        return passwordHashingService.encodeAsync(request.getNewPassword())
+                .thenApply(passwordHash -> userService.resetPasswordWithToken(request.getToken(), passwordHash)
+                        .map(userId -> {
+                            log.info("Password reset successfully: userId={}", userId);
+                            return ResponseEntity.ok(ApiResponse.success("密碼重設成功，請使用新密碼登入", (String) null));
+                        })
+                        .orElseGet(() -> {
+                            log.warn("Password reset failed: invalid or expired token");
+                            return ResponseEntity.badRequest().body(ApiResponse.error("重設連結無效或已過期"));
+                        }));
     }
 
     /**
      * 初次設定密碼（已登入用戶，不需 token）
      */
     @PostMapping("/set-password")
-    public ResponseEntity<ApiResponse<String>> setPassword(
+    public CompletableFuture<ResponseEntity<ApiResponse<String>>> setPassword(
             @AuthenticationPrincipal User user,
             @Valid @RequestBody SetPasswordRequest request) {
         if (user == null) {
-            return ResponseEntity.status(401).body(ApiResponse.error("請先登入"));
+            return CompletableFuture.completedFuture(ResponseEntity.status(401).body(ApiResponse.error("請先登入")));
         }
+        User currentUser = userService.loadCurrentUser(user);
         
-        if (user.getPasswordSet()) {
-            return ResponseEntity.badRequest().body(ApiResponse.error("您已設定過密碼，請使用更換密碼功能"));
+        if (currentUser.getPasswordSet()) {
+            return CompletableFuture.completedFuture(
+                    ResponseEntity.badRequest().body(ApiResponse.error("您已設定過密碼，請使用更換密碼功能")));
         }
         
         // 如果提供了 token，驗證 token（來自驗證信箱流程）
         // 如果沒有 token，直接允許已登入用戶設定密碼
-        if (request.getToken() != null && !request.getToken().isEmpty()) {
-            return emailService.validateToken(request.getToken())
-                    .filter(t -> t.getType() == VerificationToken.TokenType.EMAIL_VERIFY)
-                    .filter(t -> t.getUser().getUserId().equals(user.getUserId()))
-                    .map(token -> {
-                        userService.setPassword(user.getUserId(), request.getNewPassword());
-                        emailService.deleteToken(token);
-                        log.info("Password set successfully with token: userId={}", user.getUserId());
-                        return ResponseEntity.ok(ApiResponse.success("密碼設定成功", (String) null));
-                    })
-                    .orElseGet(() -> {
-                        log.warn("Set password failed: invalid or expired token");
-                        return ResponseEntity.badRequest().body(ApiResponse.error("驗證連結無效或已過期"));
-                    });
-        } else {
-            // 已登入用戶直接設定密碼
-            userService.setPassword(user.getUserId(), request.getNewPassword());
-            log.info("Password set successfully: userId={}", user.getUserId());
-            return ResponseEntity.ok(ApiResponse.success("密碼設定成功", (String) null));
+        boolean withToken = request.getToken() != null && !request.getToken().isEmpty();
+        if (withToken && !emailTokenService.isUsable(request.getToken(), VerificationToken.TokenType.EMAIL_VERIFY, user.getUserId())) {
+            log.warn("Set password failed: invalid or expired token");
+            return CompletableFuture.completedFuture(
+                    ResponseEntity.badRequest().body(ApiResponse.error("驗證連結無效或已過期")));
         }
+        return passwordHashingService.encodeAsync(request.getNewPassword()).thenApply(passwordHash -> {
+            if (withToken) {
+                if (!userService.setPasswordWithToken(user.getUserId(), request.getToken(), passwordHash)) {
+                    log.warn("Set password failed: invalid or expired token");
+                    return ResponseEntity.badRequest().body(ApiResponse.<String>error("驗證連結無效或已過期"));
+                }
+                log.info("Password set successfully with token: userId={}", user.getUserId());
+            } else {
+                // 已登入用戶直接設定密碼
+                userService.setPassword(user.getUserId(), passwordHash);
+                log.info("Password set successfully: userId={}", user.getUserId());
+            }
+            return ResponseEntity.ok(ApiResponse.success("密碼設定成功", (String) null));
+        });
     }
 
     @GetMapping("/me")
@@ -299,18 +314,43 @@ public class AuthController {
         if (user == null) {
             return ResponseEntity.status(401).body(ApiResponse.error("Not authenticated"));
         }
-        return ResponseEntity.ok(ApiResponse.success(new UserResponse(user)));
+        return ResponseEntity.ok(ApiResponse.success(new UserResponse(userService.loadCurrentUser(user))));
+    }
+
+    /**
+     * 以 refresh token 換發新的 access token（refresh token 同時輪替）
+     */
+    @PostMapping("/refresh")
+    public ResponseEntity<ApiResponse<UserResponse>> refresh(
+            @CookieValue(name = REFRESH_COOKIE_NAME, required = false) String refreshToken) {
+        return refreshTokenService.rotate(refreshToken)
+                .map(rotated -> createSession(rotated.user(), rotated.refreshToken(), "Token refreshed"))
+                .orElseGet(() -> ResponseEntity.status(401)
+                        .header(HttpHeaders.SET_COOKIE, createClearCookie(AUTH_COOKIE_NAME).toString())
+                        .header(HttpHeaders.SET_COOKIE, createClearCookie(REFRESH_COOKIE_NAME).toString())
+                        .body(ApiResponse.error("Session expired")));
     }
 
     @PostMapping("/logout")
-    public ResponseEntity<ApiResponse<String>> logout(@AuthenticationPrincipal User user) {
+    public ResponseEntity<ApiResponse<String>> logout(
+            @AuthenticationPrincipal User user,
+            @CookieValue(name = REFRESH_COOKIE_NAME, required = false) String refreshToken,
+            HttpServletRequest request) {
         if (user != null) {
             log.info("User logged out: userId={}, email={}", user.getUserId(), user.getEmail());
         }
-        // Clear the auth cookie
-        ResponseCookie clearCookie = createClearCookie();
+        // 撤銷目前的 access token 與 refresh token
+        String accessToken = jwtUtil.resolveToken(request);
+        if (accessToken != null) {
+            jwtUtil.validateAndExtractClaims(accessToken)
+                    .ifPresent(claims -> revokedTokenRegistry.revoke(claims.getId(), claims.getExpiration()));
+        }
+        refreshTokenService.revoke(refreshToken);
+
+        // Clear the auth cookies
         return ResponseEntity.ok()
-                .header(HttpHeaders.SET_COOKIE, clearCookie.toString())
+                .header(HttpHeaders.SET_COOKIE, createClearCookie(AUTH_COOKIE_NAME).toString())
+                .header(HttpHeaders.SET_COOKIE, createClearCookie(REFRESH_COOKIE_NAME).toString())
                 .body(ApiResponse.success("Logout successful", null));
     }
 
@@ -6,8 +6,10 @@ import com.choose.model.CartItem;
 import com.choose.model.User;
 import com.choose.service.CartService;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.Size;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
@@ -65,6 +67,24 @@ public class CartController {
         return ResponseEntity.ok(ApiResponse.success("Removed from cart", null));
     }
 
+    /**
+     * 批次異動購物車（新增 / 更新 / 移除），一次請求完成並回傳最新購物車
+     */
+    @PatchMapping
+    public ResponseEntity<ApiResponse<List<CartItemDTO>>> applyOperations(
+            @AuthenticationPrincipal User user,
+            @Valid @RequestBody CartBatchRequest request) {
+        if (user == null) {
+            return ResponseEntity.status(401).body(ApiResponse.error("Not authenticated"));
+        }
+        List<CartService.CartOperation> operations = request.getOperations().stream()
+                .map(op -> new CartService.CartOperation(
+                        op.getOp(), op.getCartItemId(), op.getVariantId(), op.getQuantity()))
+                .toList();
+        List<CartItem> cartItems = cartService.applyOperations(user.getUserId(), operations);
+        return ResponseEntity.ok(ApiResponse.success("Cart updated", CartItemDTO.fromEntities(cartItems)));
+    }
+
     @DeleteMapping
     public ResponseEntity<ApiResponse<Void>> clearCart(@AuthenticationPrincipal User user) {
         if (user == null) {
@@ -90,4 +110,26 @@ public class CartController {
         @Positive
         private Integer quantity;
     }
+
+    @Data
+    static class CartBatchRequest {
+        @NotEmpty
+        @Size(max = 100)
+        private List<@Valid CartOperationRequest> operations;
+    }
+
+    @Data
+    static class CartOperationRequest {
+        @NotNull
+        private CartService.CartOperation.Type op;
+
+        // UPDATE / REMOVE 使用
+        private Long cartItemId;
+
+        // ADD 使用
+        private Long variantId;
+
+        @Positive
+        private Integer quantity;
+    }
 }
@@ -0,0 +1,59 @@
+package com.choose.controller;
+
+import com.choose.common.ApiResponse;
+import com.choose.service.ImageStorage;
+import com.choose.service.ImageUploadService;
+import com.choose.service.LocalImageStorage;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+
+/**
+ * 本機儲存模式下的直傳端點，模擬外部圖片儲存的簽章上傳（僅在 app.image-storage.type=local 時啟用）
+ * 以 token 驗證而非登入狀態，回傳帶簽章的收據供 /api/upload/direct/confirm 驗證
+ */
+@RestController
+@RequestMapping("/api/public/direct-uploads")
+@ConditionalOnProperty(name = "app.image-storage.type", havingValue = "local")
+@RequiredArgsConstructor
+public class DirectUploadStandInController {
+
+    private final LocalImageStorage localImageStorage;
+    private final ImageUploadService imageUploadService;
+
+    @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<ApiResponse<DirectUploadReceipt>> upload(
+            @RequestParam("token") String token,
+            @RequestParam("file") MultipartFile file) throws IOException {
+        if (!localImageStorage.isValidUploadToken(token)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                    .body(ApiResponse.error("Invalid or expired upload token"));
+        }
+        if (file.isEmpty()) {
+            return ResponseEntity.badRequest()
+                    .body(ApiResponse.error("No file provided"));
+        }
+
+        ImageStorage.StoredImage stored = imageUploadService.store(file);
+        DirectUploadReceipt receipt = new DirectUploadReceipt();
+        receipt.setUrl(stored.url());
+        receipt.setSignature(localImageStorage.signReceipt(stored.url()));
+        return ResponseEntity.ok(ApiResponse.success(receipt));
+    }
+
+    @Data
+    static class DirectUploadReceipt {
+        private String url;
+        private String signature;
+    }
+}
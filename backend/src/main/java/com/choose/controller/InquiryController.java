@@ -1,10 +1,16 @@
 package com.choose.controller;
 
 import com.choose.common.ApiResponse;
+import com.choose.common.ClientIpResolver;
 import com.choose.dto.response.InquiryDTO;
+import com.choose.dto.response.InquiryPageDTO;
+import com.choose.dto.response.InquirySearchResultDTO;
+import com.choose.dto.response.InquirySuggestionsDTO;
 import com.choose.model.ContactMessage;
 import com.choose.model.User;
+import com.choose.security.RateLimiter;
 import com.choose.service.ContactMessageService;
+import com.choose.service.InquirySuggestionService;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.Email;
@@ -17,12 +23,15 @@ import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/inquiries")
 @RequiredArgsConstructor
 public class InquiryController {
     private final ContactMessageService contactMessageService;
+    private final RateLimiter rateLimiter;
+    private final InquirySuggestionService inquirySuggestionService;
 
     @GetMapping
     @PreAuthorize("hasRole('ADMIN')")
@@ -32,6 +41,41 @@ public class InquiryController {
         return ResponseEntity.ok(ApiResponse.success(dtos));
     }
 
+    /**
+     * 收件匣分頁列表（keyset 游標，不含訊息與回覆內文）
+     * @param status 篩選狀態；省略時列出全部
+     * @param cursor 上一頁回傳的 nextCursor
+     */
+    @GetMapping("/page")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<InquiryPageDTO>> getInquiryPage(
+            @RequestParam(required = false) ContactMessage.MessageStatus status,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        return ResponseEntity.ok(ApiResponse.success(contactMessageService.getInquiryPage(status, cursor, size)));
+    }
+
+    /**
+     * 以關鍵字、Email 或案件編號搜尋客服案件
+     */
+    @GetMapping("/search")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<InquirySearchResultDTO>> searchInquiries(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        return ResponseEntity.ok(ApiResponse.success(contactMessageService.searchInquiries(q, page, size)));
+    }
+
+    /**
+     * 各狀態案件數量
+     */
+    @GetMapping("/counts")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<Map<String, Long>>> getStatusCounts() {
+        return ResponseEntity.ok(ApiResponse.success(contactMessageService.getStatusCounts()));
+    }
+
     @GetMapping("/{messageId}")
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<ApiResponse<InquiryDTO>> getInquiryById(@PathVariable Long messageId) {
@@ -40,11 +84,24 @@ public class InquiryController {
                 .orElse(ResponseEntity.notFound().build());
     }
 
+    /**
+     * 回覆時的建議：相似的已回覆案件與最相符的回覆模板
+     */
+    @GetMapping("/{messageId}/suggestions")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<InquirySuggestionsDTO>> getSuggestions(
+            @PathVariable Long messageId,
+            @RequestParam(defaultValue = "5") int limit) {
+        return ResponseEntity.ok(ApiResponse.success(inquirySuggestionService.suggest(messageId, limit)));
+    }
+
     @PostMapping
     public ResponseEntity<ApiResponse<InquiryDTO>> createInquiry(
             @Valid @RequestBody InquiryRequest request,
             @AuthenticationPrincipal User user,
             HttpServletRequest httpRequest) {
+        String ipAddress = ClientIpResolver.resolve(httpRequest);
+        rateLimiter.check("inquiry", ipAddress, request.getEmail());
         
         ContactMessage message = new ContactMessage();
         message.setName(request.getName());
@@ -52,7 +109,6 @@ public class InquiryController {
         message.setSubject(request.getSubject());
         message.setMessage(request.getMessage());
         
-        String ipAddress = getClientIpAddress(httpRequest);
         ContactMessage created = contactMessageService.createMessage(message, user, ipAddress);
         
         return ResponseEntity.ok(ApiResponse.success("Inquiry submitted successfully", InquiryDTO.fromEntity(created)));
@@ -96,14 +152,6 @@ public class InquiryController {
         return ResponseEntity.ok(ApiResponse.success("已重新開啟案件", InquiryDTO.fromEntity(updated)));
     }
 
-    private String getClientIpAddress(HttpServletRequest request) {
-        String xForwardedFor = request.getHeader("X-Forwarded-For");
-        if (xForwardedFor != null && !xForwardedFor.isEmpty()) {
-            return xForwardedFor.split(",")[0].trim();
-        }
-        return request.getRemoteAddr();
-    }
-
     @Data
     static class InquiryRequest {
         @NotBlank
@@ -2,6 +2,7 @@ package com.choose.controller;
 
 import com.choose.common.ApiResponse;
 import com.choose.dto.response.OrderDTO;
+import com.choose.dto.response.OrderQuoteDTO;
 import com.choose.model.Order;
 import com.choose.model.OrderItem;
 import com.choose.model.ProductVariant;
@@ -20,7 +21,9 @@ import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/orders")
@@ -104,6 +107,29 @@ public class OrderController {
         return ResponseEntity.ok(ApiResponse.success("Order created successfully", OrderDTO.fromEntity(createdOrder)));
     }
 
+    /**
+     * 結帳試算：確認價格與庫存，不建立訂單
+     * 未提供 items 時以目前購物車試算
+     */
+    @PostMapping("/quote")
+    public ResponseEntity<ApiResponse<OrderQuoteDTO>> quoteOrder(
+            @AuthenticationPrincipal User user,
+            @Valid @RequestBody(required = false) QuoteRequest request) {
+        if (user == null) {
+            return ResponseEntity.status(401).body(ApiResponse.error("Not authenticated"));
+        }
+
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        if (request != null && request.getItems() != null) {
+            for (OrderItemRequest item : request.getItems()) {
+                quantities.merge(item.getVariantId(), item.getQuantity(), Integer::sum);
+            }
+        }
+
+        OrderQuoteDTO quote = orderService.quoteOrder(user.getUserId(), quantities);
+        return ResponseEntity.ok(ApiResponse.success(quote));
+    }
+
     @PatchMapping("/{orderId}/status")
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<ApiResponse<OrderDTO>> updateOrderStatus(
@@ -169,6 +195,11 @@ public class OrderController {
         private Integer quantity;
     }
 
+    @Data
+    static class QuoteRequest {
+        private List<@Valid OrderItemRequest> items;
+    }
+
     @Data
     static class StatusUpdateRequest {
         @NotNull
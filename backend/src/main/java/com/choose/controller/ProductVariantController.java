@@ -4,7 +4,9 @@ import com.choose.common.ApiResponse;
 import com.choose.dto.response.ProductVariantDTO;
 import com.choose.model.Product;
 import com.choose.model.ProductVariant;
+import com.choose.model.User;
 import com.choose.service.ProductService;
+import com.choose.service.StockSubscriptionService;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
@@ -12,6 +14,7 @@ import lombok.Data;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
@@ -21,6 +24,7 @@ import java.util.List;
 @RequiredArgsConstructor
 public class ProductVariantController {
     private final ProductService productService;
+    private final StockSubscriptionService stockSubscriptionService;
 
     @GetMapping("/product/{productId}")
     public ResponseEntity<ApiResponse<List<ProductVariantDTO>>> getVariantsByProduct(@PathVariable Long productId) {
@@ -75,6 +79,31 @@ public class ProductVariantController {
         return ResponseEntity.ok(ApiResponse.success("Variant deleted successfully", null));
     }
 
+    /**
+     * 訂閱到貨通知（僅限缺貨中的規格）
+     */
+    @PostMapping("/{variantId}/subscription")
+    public ResponseEntity<ApiResponse<Void>> subscribeRestock(
+            @AuthenticationPrincipal User user,
+            @PathVariable Long variantId) {
+        if (user == null) {
+            return ResponseEntity.status(401).body(ApiResponse.error("Not authenticated"));
+        }
+        stockSubscriptionService.subscribe(variantId, user.getUserId());
+        return ResponseEntity.ok(ApiResponse.success("Subscribed to restock notification", null));
+    }
+
+    @DeleteMapping("/{variantId}/subscription")
+    public ResponseEntity<ApiResponse<Void>> unsubscribeRestock(
+            @AuthenticationPrincipal User user,
+            @PathVariable Long variantId) {
+        if (user == null) {
+            return ResponseEntity.status(401).body(ApiResponse.error("Not authenticated"));
+        }
+        stockSubscriptionService.unsubscribe(variantId, user.getUserId());
+        return ResponseEntity.ok(ApiResponse.success("Unsubscribed from restock notification", null));
+    }
+
     @Data
     static class VariantRequest {
         @NotNull
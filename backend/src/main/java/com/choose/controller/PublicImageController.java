@@ -0,0 +1,142 @@
+package com.choose.controller;
+
+import com.choose.service.LocalImageStorage;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 本機儲存圖片的公開下載（僅在 app.image-storage.type=local 時啟用）
+ * 檔名即內容雜湊，可設定永久快取；支援單一 Range 請求，
+ * 容器支援時交由 Tomcat sendfile 傳送，否則以 FileChannel.transferTo 直接寫出，不經過應用層緩衝
+ */
+@RestController
+@RequestMapping("/api/public/images")
+@ConditionalOnProperty(name = "app.image-storage.type", havingValue = "local")
+@RequiredArgsConstructor
+@Slf4j
+public class PublicImageController {
+
+    private static final String SENDFILE_SUPPORTED_ATTR = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME_ATTR = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START_ATTR = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END_ATTR = "org.apache.tomcat.sendfile.end";
+
+    private static final String CACHE_CONTROL = "public, max-age=31536000, immutable";
+    private static final Pattern RANGE = Pattern.compile("bytes=(\\d*)-(\\d*)");
+
+    private final LocalImageStorage localImageStorage;
+
+    @GetMapping("/{fileName:.+}")
+    public void getImage(@PathVariable String fileName,
+                         HttpServletRequest request,
+                         HttpServletResponse response) throws IOException {
+        Optional<Path> resolved = localImageStorage.resolve(fileName);
+        if (resolved.isEmpty()) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        Path file = resolved.get();
+
+        // 內容不會變動，檔名中的雜湊就是 ETag
+        String etag = "\"" + fileName.substring(0, fileName.indexOf('.')) + "\"";
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        if (etag.equals(request.getHeader(HttpHeaders.IF_NONE_MATCH))) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long length = channel.size();
+            long start = 0;
+            long end = length - 1;
+
+            String range = request.getHeader(HttpHeaders.RANGE);
+            if (range != null) {
+                Matcher matcher = RANGE.matcher(range.trim());
+                // 多段 Range 依規範可忽略，回傳完整內容
+                if (matcher.matches()) {
+                    long[] bounds = parseRange(matcher.group(1), matcher.group(2), length);
+                    if (bounds == null) {
+                        response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                        response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                        return;
+                    }
+                    start = bounds[0];
+                    end = bounds[1];
+                    response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+                }
+            }
+
+            long count = end - start + 1;
+            response.setContentType(localImageStorage.contentType(fileName));
+            response.setContentLengthLong(count);
+
+            if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED_ATTR))) {
+                request.setAttribute(SENDFILE_FILENAME_ATTR, file.toString());
+                request.setAttribute(SENDFILE_START_ATTR, start);
+                request.setAttribute(SENDFILE_END_ATTR, end + 1);
+                return;
+            }
+
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            long remaining = count;
+            while (remaining > 0) {
+                long written = channel.transferTo(position, remaining, out);
+                if (written <= 0) {
+                    break;
+                }
+                position += written;
+                remaining -= written;
+            }
+        }
+    }
+
+    /**
+     * 解析單一 Range（含 bytes=-N 的尾端區段）
+     * @return [start, end]（含端點）；無法滿足時回傳 null
+     */
+    private static long[] parseRange(String startText, String endText, long length) {
+        if (startText.isEmpty() && endText.isEmpty()) {
+            return null;
+        }
+        try {
+            if (startText.isEmpty()) {
+                long suffix = Long.parseLong(endText);
+                if (suffix == 0 || length == 0) {
+                    return null;
+                }
+                return new long[]{Math.max(0, length - suffix), length - 1};
+            }
+            long start = Long.parseLong(startText);
+            long end = endText.isEmpty() ? length - 1 : Math.min(Long.parseLong(endText), length - 1);
+            if (start >= length || start > end) {
+                return null;
+            }
+            return new long[]{start, end};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
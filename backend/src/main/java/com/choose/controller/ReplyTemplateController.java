@@ -3,6 +3,8 @@ package com.choose.controller;
 import com.choose.common.ApiResponse;
 import com.choose.model.ReplyTemplate;
 import com.choose.model.User;
+import com.choose.model.ContactMessage;
+import com.choose.service.ContactMessageService;
 import com.choose.service.ReplyTemplateService;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotBlank;
@@ -20,6 +22,7 @@ import java.util.List;
 @RequiredArgsConstructor
 public class ReplyTemplateController {
     private final ReplyTemplateService templateService;
+    private final ContactMessageService contactMessageService;
 
     @GetMapping
     @PreAuthorize("hasRole('ADMIN')")
@@ -31,6 +34,19 @@ public class ReplyTemplateController {
         return ResponseEntity.ok(ApiResponse.success(dtos));
     }
 
+    /**
+     * 以指定客服訊息套用模板變數，回傳回覆內容草稿
+     */
+    @GetMapping("/{templateId}/render")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<String>> renderTemplate(
+            @PathVariable Long templateId,
+            @RequestParam Long inquiryId) {
+        ContactMessage inquiry = contactMessageService.getMessageById(inquiryId)
+                .orElseThrow(() -> new IllegalArgumentException("Message not found"));
+        return ResponseEntity.ok(ApiResponse.success(templateService.renderForInquiry(templateId, inquiry)));
+    }
+
     @PostMapping
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<ApiResponse<TemplateDTO>> createTemplate(
@@ -1,10 +1,19 @@
 package com.choose.controller;
 
 import com.choose.common.ApiResponse;
+import com.choose.dto.response.ProductDTO;
+import com.choose.model.ImageUploadJob;
+import com.choose.model.Product;
+import com.choose.service.DirectUploadService;
+import com.choose.service.ImageStorage;
 import com.choose.service.ImageUploadService;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -12,6 +21,8 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.util.List;
+import java.util.Map;
 
 /**
  * 檔案上傳 Controller
@@ -24,6 +35,7 @@ import java.io.IOException;
 public class UploadController {
 
     private final ImageUploadService imageUploadService;
+    private final DirectUploadService directUploadService;
 
     /**
      * 上傳商品圖片
@@ -63,8 +75,121 @@ public class UploadController {
         }
     }
 
+    /**
+     * 一次上傳多張顏色圖片（並行處理）
+     * POST /api/upload/images
+     *
+     * @param files  圖片檔案 (multipart/form-data，可重複)
+     * @param colors 每張圖片對應的顏色（與 files 同順序；只給一個時套用到全部）
+     * @return 依顏色分組的圖片網址，可直接合併到 ProductRequest.colorImages
+     */
+    @PostMapping(value = "/images", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<ColorImagesUploadResponse>> uploadColorImages(
+            @RequestParam("files") List<MultipartFile> files,
+            @RequestParam("colors") List<String> colors) throws IOException {
+        ImageUploadService.ColorImagesUpload uploaded = imageUploadService.uploadColorImages(files, colors);
+
+        ColorImagesUploadResponse response = new ColorImagesUploadResponse();
+        response.setUrls(uploaded.urls());
+        response.setColorImages(uploaded.colorImages());
+        return ResponseEntity.ok(ApiResponse.success("Images uploaded successfully", response));
+    }
+
+    /**
+     * 非同步上傳商品圖片：檔案寫入暫存後立即回傳 uploadId，完成後以 GET /api/upload/jobs/{uploadId} 取得網址
+     * POST /api/upload/image/async
+     */
+    @PostMapping(value = "/image/async", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<UploadJobResponse>> submitImageUpload(
+            @RequestParam("file") MultipartFile file) throws IOException {
+        if (file.isEmpty()) {
+            return ResponseEntity.badRequest()
+                    .body(ApiResponse.error("No file provided"));
+        }
+        ImageUploadJob job = imageUploadService.submitUpload(file);
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .body(ApiResponse.success("Image upload accepted", UploadJobResponse.fromEntity(job)));
+    }
+
+    /**
+     * 查詢上傳工作狀態
+     * GET /api/upload/jobs/{uploadId}
+     */
+    @GetMapping("/jobs/{uploadId}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<UploadJobResponse>> getUploadJob(@PathVariable String uploadId) {
+        return imageUploadService.getJob(uploadId)
+                .map(job -> ResponseEntity.ok(ApiResponse.success(UploadJobResponse.fromEntity(job))))
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(ApiResponse.error("Upload job not found")));
+    }
+
+    /**
+     * 取得瀏覽器直傳用的短效簽章參數（圖片不經過 API 節點）
+     * POST /api/upload/direct/ticket
+     */
+    @PostMapping("/direct/ticket")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<ImageStorage.DirectUploadTicket>> createDirectUploadTicket() {
+        return ResponseEntity.ok(ApiResponse.success(directUploadService.createTicket()));
+    }
+
+    /**
+     * 直傳完成後回報儲存端的回應，驗證簽章後把圖片加到商品
+     * POST /api/upload/direct/confirm
+     */
+    @PostMapping("/direct/confirm")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<ProductDTO>> confirmDirectUpload(
+            @Valid @RequestBody DirectUploadConfirmRequest request) {
+        Product product = directUploadService.confirm(request.getProductId(), request.getColor(), request.getResult());
+        return ResponseEntity.ok(ApiResponse.success("Image attached", ProductDTO.fromEntity(product)));
+    }
+
+    @Data
+    static class DirectUploadConfirmRequest {
+        @NotNull
+        private Long productId;
+
+        // 未指定時設為主圖
+        private String color;
+
+        // 儲存端上傳回應的欄位（Cloudinary：public_id / version / format / signature）
+        @NotEmpty
+        private Map<String, String> result;
+    }
+
     @Data
     static class ImageUploadResponse {
         private String url;
     }
+
+    @Data
+    static class ColorImagesUploadResponse {
+        private List<String> urls;
+        private Map<String, List<String>> colorImages;
+    }
+
+    @Data
+    static class UploadJobResponse {
+        private String uploadId;
+        private String status;
+        private String url;
+        private String thumbnailUrl;
+        private String largeUrl;
+        private String error;
+
+        static UploadJobResponse fromEntity(ImageUploadJob job) {
+            UploadJobResponse response = new UploadJobResponse();
+            response.setUploadId(job.getUploadId());
+            response.setStatus(job.getStatus().name());
+            response.setUrl(job.getUrl());
+            response.setThumbnailUrl(job.getThumbnailUrl());
+            response.setLargeUrl(job.getLargeUrl());
+            response.setError(job.getErrorMessage());
+            return response;
+        }
+    }
 }
@@ -33,7 +33,7 @@ public class UserController {
         if (user == null) {
             return ResponseEntity.status(401).body(ApiResponse.error("Not authenticated"));
         }
-        return ResponseEntity.ok(ApiResponse.success(new UserProfileResponse(user)));
+        return ResponseEntity.ok(ApiResponse.success(new UserProfileResponse(userService.loadCurrentUser(user))));
     }
 
     /**
@@ -90,6 +90,24 @@ public class UserController {
         return ResponseEntity.ok(ApiResponse.success(stats));
     }
 
+    /**
+     * Admin: Change user role
+     */
+    @PatchMapping("/{userId}/role")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<UserProfileResponse>> updateUserRole(
+            @PathVariable Long userId,
+            @Valid @RequestBody RoleUpdateRequest request) {
+        User updated = userService.updateRole(userId, request.getRole());
+        return ResponseEntity.ok(ApiResponse.success("Role updated", new UserProfileResponse(updated)));
+    }
+
+    @Data
+    static class RoleUpdateRequest {
+        @jakarta.validation.constraints.NotNull
+        private User.Role role;
+    }
+
     @Data
     static class UpdateProfileRequest {
         private String name;
@@ -158,7 +176,10 @@ public class UserController {
         }
 
         try {
-            userService.deleteUserAccount(user.getUserId(), request.getPassword(), orderService, cartService);
+            if (!userService.verifyPassword(user.getUserId(), request.getPassword())) {
+                return ResponseEntity.badRequest().body(ApiResponse.error("密碼不正確"));
+            }
+            userService.deleteUserAccount(user.getUserId(), orderService, cartService);
             return ResponseEntity.ok(ApiResponse.success("帳號已成功刪除", null));
         } catch (IllegalArgumentException e) {
             return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
@@ -0,0 +1,19 @@
+package com.choose.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 客服收件匣分頁結果
+ * nextCursor 為下一頁的 keyset 游標；null 表示已無更多資料
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class InquiryPageDTO {
+    private List<InquirySummaryDTO> items;
+    private String nextCursor;
+}
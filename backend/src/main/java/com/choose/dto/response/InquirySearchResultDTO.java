@@ -0,0 +1,20 @@
+package com.choose.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 客服案件搜尋結果（依頁碼分頁）
+ * hasMore 為 true 時可以 page + 1 取得下一頁
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class InquirySearchResultDTO {
+    private List<InquirySummaryDTO> items;
+    private int page;
+    private boolean hasMore;
+}
@@ -0,0 +1,39 @@
+package com.choose.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 回覆客服案件時的建議：相似的已回覆案件與最相符的回覆模板（依相似度由高到低）
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class InquirySuggestionsDTO {
+    private List<SimilarInquiryDTO> similarInquiries;
+    private List<TemplateSuggestionDTO> templates;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class SimilarInquiryDTO {
+        private Long id;
+        private String caseNumber;
+        private String subject;
+        private String message;
+        private String adminReply;
+        private float score;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class TemplateSuggestionDTO {
+        private Long id;
+        private String name;
+        private float score;
+    }
+}
@@ -0,0 +1,27 @@
+package com.choose.dto.response;
+
+import com.choose.model.ContactMessage;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 客服收件匣列表用的精簡資料（不含 message / admin_reply 等 TEXT 欄位）
+ * 由 JPQL constructor expression 直接投影，不載入完整實體
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class InquirySummaryDTO {
+    private Long id;
+    private String caseNumber;
+    private String name;
+    private String email;
+    private String subject;
+    private ContactMessage.MessageStatus status;
+    private LocalDateTime createdAt;
+    private LocalDateTime repliedAt;
+    private Long userId;
+}
@@ -0,0 +1,35 @@
+package com.choose.dto.response;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * 結帳試算 DTO
+ * 下單前確認整個購物車的價格與庫存，不寫入任何資料
+ */
+@Data
+public class OrderQuoteDTO {
+    private List<QuoteLineDTO> lines;
+    private BigDecimal total;      // 可下單項目（problem 為 null）的總金額
+    private Boolean valid;         // 所有項目皆無問題時為 true
+
+    @Data
+    public static class QuoteLineDTO {
+        private Long variantId;
+        private String skuCode;
+        private String productName;
+        private String color;
+        private String size;
+        private BigDecimal unitPrice;
+        private Integer quantity;
+        private Integer availableStock;
+        private BigDecimal lineTotal;
+        private Problem problem;   // null 表示此項目可下單
+    }
+
+    public enum Problem {
+        VARIANT_NOT_FOUND, OUT_OF_STOCK, INSUFFICIENT_STOCK
+    }
+}
@@ -2,8 +2,6 @@ package com.choose.dto.response;
 
 import com.choose.model.Product;
 import com.choose.model.ProductVariant;
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.Data;
 
 import java.math.BigDecimal;
@@ -18,7 +16,7 @@ import java.util.Map;
  * - imageUrl -> image
  * - category object -> category name string
  * - variants stock -> aggregated stock
- * - colorImages JSON -> colorImages Map
+ * - product_images rows -> colorImages Map
  */
 @Data
 public class ProductDTO {
@@ -28,6 +26,7 @@ public class ProductDTO {
     private String category;
     private Long categoryId;
     private String image;
+    private String imageSrcset;
     private String description;
     private Boolean isListed;
     private Boolean isFeatured;
@@ -35,8 +34,6 @@ public class ProductDTO {
     private LocalDateTime createdAt;
     private Map<String, List<String>> colorImages; // 顏色對應圖片 Map
 
-    private static final ObjectMapper objectMapper = new ObjectMapper();
-
     public static ProductDTO fromEntity(Product product) {
         ProductDTO dto = new ProductDTO();
         dto.setId(product.getProductId());
@@ -44,21 +41,14 @@ public class ProductDTO {
         dto.setPrice(product.getPrice());
         dto.setDescription(product.getDescription());
         dto.setImage(product.getImageUrl());
+        dto.setImageSrcset(product.getImageSrcset());
         dto.setIsListed(product.getIsListed());
         dto.setIsFeatured(product.getIsFeatured() != null ? product.getIsFeatured() : false);
         dto.setCreatedAt(product.getCreatedAt());
         
-        // Parse colorImages JSON
-        if (product.getColorImages() != null && !product.getColorImages().isEmpty()) {
-            try {
-                dto.setColorImages(objectMapper.readValue(
-                    product.getColorImages(), 
-                    new TypeReference<Map<String, List<String>>>() {}
-                ));
-            } catch (Exception e) {
-                dto.setColorImages(null);
-            }
-        }
+        // 顏色圖片由 product_images 依 ordinal 組成，沒有圖片時維持 null
+        Map<String, List<String>> colorImages = product.getColorImages();
+        dto.setColorImages(colorImages.isEmpty() ? null : colorImages);
         
         // Map category
         if (product.getCategory() != null) {
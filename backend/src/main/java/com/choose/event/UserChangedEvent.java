@@ -0,0 +1,31 @@
+package com.choose.event;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * 使用者資料異動事件
+ * 供驗證相關的快取 / claims 信任機制得知使用者狀態已改變
+ */
+@Getter
+@RequiredArgsConstructor
+public class UserChangedEvent {
+    private final Long userId;
+    private final String email;     // 異動前的 email（刪除帳號時 email 會被去識別化）
+    private final Type type;
+
+    public enum Type {
+        PROFILE_UPDATED,
+        PASSWORD_CHANGED,
+        EMAIL_VERIFIED,
+        ROLE_CHANGED,
+        DELETED
+    }
+
+    /**
+     * 是否會讓 JWT 內的 claims（userId / email / role）失效
+     */
+    public boolean invalidatesClaims() {
+        return type == Type.ROLE_CHANGED || type == Type.DELETED;
+    }
+}
@@ -0,0 +1,14 @@
+package com.choose.event;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * 規格庫存由 0 變為正數
+ */
+@Getter
+@RequiredArgsConstructor
+public class VariantRestockedEvent {
+    private final Long variantId;
+    private final int stock;
+}
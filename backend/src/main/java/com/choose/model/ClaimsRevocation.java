@@ -0,0 +1,32 @@
+package com.choose.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 使用者 claims 失效記錄：staleBefore 以前簽發的 token 不再信任其 claims
+ */
+@Entity
+@Table(name = "claims_revocations", indexes = {
+        @Index(name = "idx_updated_at", columnList = "updated_at"),
+        @Index(name = "idx_stale_before", columnList = "stale_before")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ClaimsRevocation {
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "stale_before", nullable = false)
+    private LocalDateTime staleBefore;
+
+    // 由資料庫時鐘填入，各節點以此做增量同步
+    @Column(name = "updated_at", insertable = false, updatable = false)
+    private LocalDateTime updatedAt;
+}
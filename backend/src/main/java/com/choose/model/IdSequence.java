@@ -0,0 +1,23 @@
+package com.choose.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 具名序號計數器：next_value 為下一個尚未配置的號碼，各節點以區段方式預先保留
+ */
+@Entity
+@Table(name = "id_sequences")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IdSequence {
+    @Id
+    @Column(name = "name", length = 64)
+    private String name;
+
+    @Column(name = "next_value", nullable = false)
+    private Long nextValue;
+}
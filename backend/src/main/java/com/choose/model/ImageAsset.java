@@ -0,0 +1,70 @@
+package com.choose.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 已儲存的圖片（以內容 SHA-256 去重）與其 600px / 1200px 衍生圖
+ */
+@Entity
+@Table(name = "image_assets", indexes = {
+        @Index(name = "idx_url", columnList = "url")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImageAsset {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "asset_id")
+    private Long assetId;
+
+    @Column(name = "content_hash", nullable = false, unique = true, length = 64)
+    private String contentHash;
+
+    @Column(name = "content_type", nullable = false, length = 50)
+    private String contentType;
+
+    @Column(name = "size_bytes", nullable = false)
+    private Long sizeBytes;
+
+    @Column(name = "url", nullable = false, length = 500)
+    private String url;
+
+    @Column(name = "url_600", length = 500)
+    private String url600;
+
+    @Column(name = "url_1200", length = 500)
+    private String url1200;
+
+    // 原圖寬度（由本機產生衍生圖時才會得知）
+    @Column(name = "width")
+    private Integer width;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 20)
+    private Status status = Status.PROCESSING;
+
+    // 轉檔租約到期時間：期限內由取得租約的節點轉檔，到期仍未完成（例如節點重啟）可由其他上傳重新取得
+    @Column(name = "claimed_until")
+    private LocalDateTime claimedUntil;
+
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+
+    public enum Status {
+        PROCESSING,  // 衍生圖產生中
+        READY,
+        FAILED,      // 產生衍生圖失敗（可重試，再次上傳相同檔案時重新排入）
+        UNSUPPORTED  // 格式不支援或尺寸過大，只使用原圖
+    }
+}
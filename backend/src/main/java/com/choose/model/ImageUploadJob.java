@@ -0,0 +1,76 @@
+package com.choose.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 非同步圖片上傳工作
+ * 上傳請求只把檔案寫入暫存檔並建立此紀錄，實際上傳由背景執行緒完成
+ */
+@Entity
+@Table(name = "image_upload_jobs", indexes = {
+        @Index(name = "idx_expires_at", columnList = "expires_at"),
+        @Index(name = "idx_node_status", columnList = "node_id, status")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImageUploadJob {
+    @Id
+    @Column(name = "upload_id", length = 36)
+    private String uploadId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 20)
+    private Status status = Status.PENDING;
+
+    @Column(name = "original_filename", length = 255)
+    private String originalFilename;
+
+    @Column(name = "url", length = 500)
+    private String url;
+
+    @Column(name = "thumbnail_url", length = 500)
+    private String thumbnailUrl;
+
+    @Column(name = "large_url", length = 500)
+    private String largeUrl;
+
+    @Column(name = "error_message", length = 500)
+    private String errorMessage;
+
+    // 暫存檔所在的節點；只有這個節點能處理此工作
+    @Column(name = "node_id", length = 100)
+    private String nodeId;
+
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+        updatedAt = createdAt;
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+
+    public enum Status {
+        PENDING,
+        PROCESSING,
+        COMPLETED,
+        FAILED
+    }
+}
@@ -0,0 +1,25 @@
+package com.choose.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 各狀態的客服案件數量，於建立 / 狀態變更 / 刪除時與案件同一交易增減，
+ * 收件匣不必對 contact_messages 執行 COUNT ... GROUP BY
+ */
+@Entity
+@Table(name = "inquiry_status_counts")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class InquiryStatusCount {
+    @Id
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", length = 20)
+    private ContactMessage.MessageStatus status;
+
+    @Column(name = "message_count", nullable = false)
+    private Long messageCount;
+}
@@ -0,0 +1,81 @@
+package com.choose.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 待寄送郵件（transactional outbox）
+ * 與業務資料在同一交易寫入，由 MailDispatcher 於背景寄出
+ */
+@Entity
+@Table(name = "mail_outbox", indexes = {
+        @Index(name = "idx_status_next_attempt", columnList = "status, next_attempt_at")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MailOutbox {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "mail_id")
+    private Long mailId;
+
+    @Column(name = "recipient", nullable = false, length = 100)
+    private String recipient;
+
+    @Column(name = "subject", nullable = false, length = 200)
+    private String subject;
+
+    @Column(name = "body", nullable = false, columnDefinition = "TEXT")
+    private String body;
+
+    // HTML 版本（可為 null）；有值時以 multipart/alternative 寄出
+    @Column(name = "html_body", columnDefinition = "TEXT")
+    private String htmlBody;
+
+    // 郵件類別，用於記錄與統計
+    @Column(name = "category", nullable = false, length = 30)
+    private String category;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false)
+    private Status status = Status.PENDING;
+
+    @Column(name = "attempts", nullable = false)
+    private Integer attempts = 0;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    // 寄送中的租約到期時間，節點中斷時由其他節點接手
+    @Column(name = "locked_until")
+    private LocalDateTime lockedUntil;
+
+    @Column(name = "last_error", length = 500)
+    private String lastError;
+
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "sent_at")
+    private LocalDateTime sentAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+        if (nextAttemptAt == null) {
+            nextAttemptAt = createdAt;
+        }
+    }
+
+    public enum Status {
+        PENDING,    // 等待寄送（含等待重試）
+        SENDING,    // 已被某個節點取走
+        SENT,       // 已寄出
+        DEAD        // 重試次數用盡
+    }
+}
@@ -0,0 +1,47 @@
+package com.choose.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 訂單狀態異動通知（待彙整）
+ * 與狀態更新同一交易寫入，由排程依使用者彙整成一封摘要郵件
+ */
+@Entity
+@Table(name = "order_status_notifications", indexes = {
+        @Index(name = "idx_pending_user", columnList = "processed_at, user_id")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderStatusNotification {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "notification_id")
+    private Long notificationId;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "order_id", nullable = false)
+    private Long orderId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 20)
+    private Order.OrderStatus status;
+
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "processed_at")
+    private LocalDateTime processedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+}
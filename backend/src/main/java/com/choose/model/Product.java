@@ -5,17 +5,22 @@ import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.BatchSize;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 @Entity
 @JsonIgnoreProperties(value = {"hibernateLazyInitializer", "handler"})
 @Table(name = "products", indexes = {
         @Index(name = "idx_category_listed", columnList = "category_id, is_listed"),
         @Index(name = "idx_name", columnList = "name"),
-        @Index(name = "idx_created_at", columnList = "created_at")
+        @Index(name = "idx_created_at", columnList = "created_at"),
+        @Index(name = "idx_image_url", columnList = "image_url")
 })
 @Data
 @NoArgsConstructor
@@ -42,8 +47,10 @@ public class Product {
     @Column(name = "image_url", length = 255)
     private String imageUrl;
 
-    @Column(name = "color_images", columnDefinition = "TEXT")
-    private String colorImages; // JSON格式：{"White": ["url1", "url2"], "Black": ["url1"]}
+    // 主圖的響應式 srcset（600w / 1200w 衍生圖），衍生圖產生完成後寫入
+    @Column(name = "image_srcset", length = 1000)
+    private String imageSrcset;
+
 
     @Column(name = "is_listed")
     private Boolean isListed = true;
@@ -57,6 +64,55 @@ public class Product {
     @OneToMany(mappedBy = "product", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<ProductVariant> variants;
 
+    // 顏色圖片依 ordinal 排序；列表頁以批次載入多個商品的圖片，避免 N+1
+    @OneToMany(mappedBy = "product", cascade = CascadeType.ALL, orphanRemoval = true)
+    @OrderBy("ordinal ASC")
+    @BatchSize(size = 50)
+    private List<ProductImage> images = new ArrayList<>();
+
+    /**
+     * 顏色對應圖片：{"White": ["url1", "url2"], "Black": ["url1"]}（依 ordinal 順序分組）
+     */
+    public Map<String, List<String>> getColorImages() {
+        Map<String, List<String>> colorImages = new LinkedHashMap<>();
+        for (ProductImage image : images) {
+            colorImages.computeIfAbsent(image.getColor(), key -> new ArrayList<>()).add(image.getUrl());
+        }
+        return colorImages;
+    }
+
+    /**
+     * 以新的顏色圖片取代現有內容（null 表示清除）
+     * 依位置沿用既有資料列只更新顏色與網址，避免刪除與新增同一 ordinal 時違反唯一鍵
+     */
+    public void setColorImages(Map<String, List<String>> colorImages) {
+        int ordinal = 0;
+        if (colorImages != null) {
+            for (Map.Entry<String, List<String>> entry : colorImages.entrySet()) {
+                for (String url : entry.getValue()) {
+                    if (ordinal < images.size()) {
+                        ProductImage image = images.get(ordinal);
+                        image.setColor(entry.getKey());
+                        image.setUrl(url);
+                    } else {
+                        images.add(new ProductImage(null, this, entry.getKey(), ordinal, url));
+                    }
+                    ordinal++;
+                }
+            }
+        }
+        while (images.size() > ordinal) {
+            images.remove(images.size() - 1);
+        }
+    }
+
+    /**
+     * 在指定顏色的圖片列表最後加入一張圖片
+     */
+    public void addColorImage(String color, String url) {
+        images.add(new ProductImage(null, this, color, images.size(), url));
+    }
+
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
@@ -0,0 +1,43 @@
+package com.choose.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+/**
+ * 商品顏色圖片（取代 products.color_images JSON）
+ * ordinal 為同一商品內的顯示順序，依序分組即得到 顏色 -> 圖片列表
+ */
+@Entity
+@Table(name = "product_images",
+        uniqueConstraints = @UniqueConstraint(name = "uk_product_ordinal", columnNames = {"product_id", "ordinal"}),
+        indexes = {
+                @Index(name = "idx_product_color", columnList = "product_id, color")
+        })
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductImage {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "image_id")
+    private Long imageId;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "product_id", nullable = false)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private Product product;
+
+    @Column(name = "color", nullable = false, length = 50)
+    private String color;
+
+    @Column(name = "ordinal", nullable = false)
+    private Integer ordinal;
+
+    @Column(name = "url", nullable = false, length = 500)
+    private String url;
+}
@@ -0,0 +1,32 @@
+package com.choose.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 已撤銷的 access token（以 JWT ID 記錄），保留到 token 原本的到期時間
+ */
+@Entity
+@Table(name = "revoked_tokens", indexes = {
+        @Index(name = "idx_revoked_at", columnList = "revoked_at"),
+        @Index(name = "idx_expires_at", columnList = "expires_at")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RevokedToken {
+    @Id
+    @Column(name = "jti", length = 36)
+    private String jti;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    // 由資料庫預設值填入，各節點以同一時鐘做增量同步
+    @Column(name = "revoked_at", insertable = false, updatable = false)
+    private LocalDateTime revokedAt;
+}
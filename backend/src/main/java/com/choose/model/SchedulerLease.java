@@ -0,0 +1,28 @@
+package com.choose.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 排程工作的租約：多個節點同時執行時，只有持有未到期租約的節點會執行該工作
+ */
+@Entity
+@Table(name = "scheduler_leases")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SchedulerLease {
+    @Id
+    @Column(name = "name", length = 64)
+    private String name;
+
+    @Column(name = "owner", nullable = false, length = 100)
+    private String owner;
+
+    @Column(name = "lease_until", nullable = false)
+    private LocalDateTime leaseUntil;
+}
@@ -0,0 +1,46 @@
+package com.choose.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 到貨通知訂閱（每位會員每個規格一筆）
+ * notified_at 不為 null 表示已通知過，需重新訂閱才會再收到
+ */
+@Entity
+@Table(name = "stock_subscriptions",
+        uniqueConstraints = @UniqueConstraint(name = "uk_variant_user", columnNames = {"variant_id", "user_id"}),
+        indexes = {
+                @Index(name = "idx_pending_variant", columnList = "variant_id, notified_at, subscription_id"),
+                @Index(name = "idx_user", columnList = "user_id")
+        })
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockSubscription {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "subscription_id")
+    private Long subscriptionId;
+
+    @Column(name = "variant_id", nullable = false)
+    private Long variantId;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "notified_at")
+    private LocalDateTime notifiedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,40 @@
+package com.choose.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * 簽章 token 的一次性使用狀態：每位使用者每種 token 一列
+ * token 內含簽發當下的 nonce，使用時 nonce 遞增，舊 token 隨即失效
+ */
+@Entity
+@Table(name = "token_nonces")
+@IdClass(TokenNonce.Key.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TokenNonce {
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Id
+    @Enumerated(EnumType.STRING)
+    @Column(name = "type", length = 20)
+    private VerificationToken.TokenType type;
+
+    @Column(name = "nonce", nullable = false)
+    private Long nonce;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Long userId;
+        private VerificationToken.TokenType type;
+    }
+}
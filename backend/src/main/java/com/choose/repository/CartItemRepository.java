@@ -2,6 +2,8 @@ package com.choose.repository;
 
 import com.choose.model.CartItem;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -12,5 +14,9 @@ public interface CartItemRepository extends JpaRepository<CartItem, Long> {
     List<CartItem> findByUserUserId(Long userId);
     Optional<CartItem> findByUserUserIdAndVariantVariantId(Long userId, Long variantId);
     void deleteByUserUserId(Long userId);
+
+    // 購物車連同規格與商品一次載入，避免逐筆 lazy loading
+    @Query("SELECT c FROM CartItem c JOIN FETCH c.variant v JOIN FETCH v.product WHERE c.user.userId = :userId")
+    List<CartItem> findWithVariantByUserUserId(@Param("userId") Long userId);
 }
 
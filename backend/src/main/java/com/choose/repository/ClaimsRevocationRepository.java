@@ -0,0 +1,38 @@
+package com.choose.repository;
+
+import com.choose.model.ClaimsRevocation;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ClaimsRevocationRepository extends JpaRepository<ClaimsRevocation, Long> {
+
+    List<ClaimsRevocation> findByStaleBeforeAfter(LocalDateTime after);
+
+    // 增量同步其他節點寫入的記錄
+    List<ClaimsRevocation> findByUpdatedAtAfter(LocalDateTime updatedAfter);
+
+    @Query("SELECT MAX(c.updatedAt) FROM ClaimsRevocation c")
+    Optional<LocalDateTime> findMaxUpdatedAt();
+
+    // 同一使用者只保留最晚的時間點；updated_at 每次寫入都更新，讓其他節點同步到
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO claims_revocations (user_id, stale_before) VALUES (:userId, :staleBefore) " +
+            "ON DUPLICATE KEY UPDATE stale_before = GREATEST(stale_before, VALUES(stale_before)), " +
+            "updated_at = CURRENT_TIMESTAMP(3)", nativeQuery = true)
+    int upsert(@Param("userId") Long userId, @Param("staleBefore") LocalDateTime staleBefore);
+
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM claims_revocations WHERE stale_before < :cutoff LIMIT :limit", nativeQuery = true)
+    int deleteStaleBefore(@Param("cutoff") LocalDateTime cutoff, @Param("limit") int limit);
+}
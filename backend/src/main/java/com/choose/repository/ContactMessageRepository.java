@@ -1,16 +1,71 @@
 package com.choose.repository;
 
+import com.choose.dto.response.InquirySummaryDTO;
 import com.choose.model.ContactMessage;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface ContactMessageRepository extends JpaRepository<ContactMessage, Long> {
+    // 收件匣列表 / 搜尋結果共用的精簡投影（不讀取 TEXT 欄位）
+    String SUMMARY_SELECT = "SELECT new com.choose.dto.response.InquirySummaryDTO(" +
+            "m.messageId, m.caseNumber, m.name, m.email, m.subject, m.status, m.createdAt, m.repliedAt, u.userId) " +
+            "FROM ContactMessage m LEFT JOIN m.user u ";
+
     List<ContactMessage> findAllByOrderByCreatedAtDesc();
     List<ContactMessage> findByStatus(ContactMessage.MessageStatus status);
     List<ContactMessage> findByUserUserId(Long userId);
-    boolean existsByCaseNumber(String caseNumber);
-}
 
+    // 既有資料庫第一次使用序號計數器時，從目前最大的案件編號接續
+    @Query(value = "SELECT COALESCE(MAX(CAST(SUBSTRING(case_number, 4) AS UNSIGNED)), 0) " +
+            "FROM contact_messages WHERE case_number LIKE 'CS-%'", nativeQuery = true)
+    long findMaxCaseSequence();
+
+    // 狀態變更時鎖定案件，避免並行操作重複增減狀態計數
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT m FROM ContactMessage m WHERE m.messageId = :messageId")
+    Optional<ContactMessage> findByIdForUpdate(@Param("messageId") Long messageId);
+
+    // keyset 分頁：沿 idx_status_created (status, created_at, 隱含主鍵) 由新到舊讀取游標之後的資料
+    @Query(SUMMARY_SELECT +
+            "WHERE m.status = :status AND m.createdAt <= :createdAt " +
+            "AND (m.createdAt < :createdAt OR m.messageId < :messageId) " +
+            "ORDER BY m.createdAt DESC, m.messageId DESC")
+    List<InquirySummaryDTO> findSummaryPage(@Param("status") ContactMessage.MessageStatus status,
+                                            @Param("createdAt") LocalDateTime createdAt,
+                                            @Param("messageId") Long messageId,
+                                            Pageable pageable);
+
+    // 全文檢索：ft_content 為 ngram FULLTEXT 索引（InnoDB 於交易提交時自動更新），依相關度排序
+    @Query(value = "SELECT message_id FROM contact_messages " +
+            "WHERE MATCH(subject, message, admin_reply) AGAINST (:query IN BOOLEAN MODE) " +
+            "ORDER BY MATCH(subject, message, admin_reply) AGAINST (:query IN BOOLEAN MODE) DESC, message_id DESC " +
+            "LIMIT :limit OFFSET :offset", nativeQuery = true)
+    List<Long> searchFullTextIds(@Param("query") String query,
+                                 @Param("limit") int limit,
+                                 @Param("offset") long offset);
+
+    @Query(SUMMARY_SELECT + "WHERE m.messageId IN :ids")
+    List<InquirySummaryDTO> findSummariesByIds(@Param("ids") Collection<Long> ids);
+
+    @Query(SUMMARY_SELECT + "WHERE m.caseNumber = :caseNumber")
+    List<InquirySummaryDTO> findSummariesByCaseNumber(@Param("caseNumber") String caseNumber);
+
+    @Query(SUMMARY_SELECT + "WHERE m.email = :email ORDER BY m.createdAt DESC, m.messageId DESC")
+    List<InquirySummaryDTO> findSummariesByEmail(@Param("email") String email, Pageable pageable);
+
+    // 相似案件索引載入：依主鍵分批讀取已回覆案件的主旨與內容
+    @Query("SELECT m.messageId, m.subject, m.message FROM ContactMessage m " +
+            "WHERE m.adminReply IS NOT NULL AND m.messageId > :afterId ORDER BY m.messageId")
+    List<Object[]> findRepliedTextAfter(@Param("afterId") Long afterId, Pageable pageable);
+}
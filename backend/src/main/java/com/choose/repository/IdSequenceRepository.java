@@ -0,0 +1,26 @@
+package com.choose.repository;
+
+import com.choose.model.IdSequence;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface IdSequenceRepository extends JpaRepository<IdSequence, String> {
+
+    // 鎖定計數器列，多個節點同時保留區段時依序執行
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM IdSequence s WHERE s.name = :name")
+    Optional<IdSequence> findByNameForUpdate(@Param("name") String name);
+
+    // 第一次使用時建立計數器；其他節點已建立時不覆蓋
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO id_sequences (name, next_value) VALUES (:name, :initialValue)", nativeQuery = true)
+    int insertIfAbsent(@Param("name") String name, @Param("initialValue") long initialValue);
+}
@@ -0,0 +1,31 @@
+package com.choose.repository;
+
+import com.choose.model.ImageAsset;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface ImageAssetRepository extends JpaRepository<ImageAsset, Long> {
+
+    Optional<ImageAsset> findByContentHash(String contentHash);
+
+    Optional<ImageAsset> findFirstByUrl(String url);
+
+    // 取得轉檔租約：只有失敗或停在 PROCESSING 且沒有有效租約的資產能被取得，多個節點同時呼叫時只有一個成功
+    @Transactional
+    @Modifying
+    @Query("UPDATE ImageAsset a SET a.status = com.choose.model.ImageAsset.Status.PROCESSING, a.claimedUntil = :until " +
+            "WHERE a.assetId = :assetId " +
+            "AND a.status IN (com.choose.model.ImageAsset.Status.PROCESSING, com.choose.model.ImageAsset.Status.FAILED) " +
+            "AND (a.claimedUntil IS NULL OR a.claimedUntil < :now)")
+    int claimForDerivatives(@Param("assetId") Long assetId,
+                            @Param("now") LocalDateTime now,
+                            @Param("until") LocalDateTime until);
+}
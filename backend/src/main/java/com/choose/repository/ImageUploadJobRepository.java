@@ -0,0 +1,29 @@
+package com.choose.repository;
+
+import com.choose.model.ImageUploadJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface ImageUploadJobRepository extends JpaRepository<ImageUploadJob, String> {
+
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM image_upload_jobs WHERE expires_at < :now LIMIT :limit", nativeQuery = true)
+    int deleteExpiredBatch(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    // 重啟時本節點的暫存檔已刪除，尚未完成的工作無法再處理；其他節點的工作不受影響
+    @Transactional
+    @Modifying
+    @Query("UPDATE ImageUploadJob j SET j.status = com.choose.model.ImageUploadJob.Status.FAILED, " +
+            "j.errorMessage = :error, j.updatedAt = :now " +
+            "WHERE j.nodeId = :nodeId " +
+            "AND j.status IN (com.choose.model.ImageUploadJob.Status.PENDING, com.choose.model.ImageUploadJob.Status.PROCESSING)")
+    int failUnfinished(@Param("nodeId") String nodeId, @Param("error") String error, @Param("now") LocalDateTime now);
+}
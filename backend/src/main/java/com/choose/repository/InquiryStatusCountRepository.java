@@ -0,0 +1,19 @@
+package com.choose.repository;
+
+import com.choose.model.ContactMessage;
+import com.choose.model.InquiryStatusCount;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface InquiryStatusCountRepository extends JpaRepository<InquiryStatusCount, ContactMessage.MessageStatus> {
+
+    // 以單一 upsert 增減，不需先讀取計數列；計數不會低於 0（例如計數列尚未建立時先收到減少）
+    @Modifying
+    @Query(value = "INSERT INTO inquiry_status_counts (status, message_count) VALUES (:status, GREATEST(0, :delta)) " +
+            "ON DUPLICATE KEY UPDATE message_count = GREATEST(0, message_count + :delta)", nativeQuery = true)
+    int addToCount(@Param("status") String status, @Param("delta") long delta);
+}
@@ -0,0 +1,49 @@
+package com.choose.repository;
+
+import com.choose.model.MailOutbox;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface MailOutboxRepository extends JpaRepository<MailOutbox, Long> {
+
+    // 鎖定可寄送的資料列；SKIP LOCKED 讓多個節點各自取得不同批次
+    @Query(value = "SELECT mail_id FROM mail_outbox WHERE status = 'PENDING' AND next_attempt_at <= :now " +
+            "ORDER BY next_attempt_at LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<Long> lockDueIds(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    @Modifying
+    @Query("UPDATE MailOutbox m SET m.status = com.choose.model.MailOutbox.Status.SENDING, " +
+            "m.lockedUntil = :lockedUntil WHERE m.mailId IN :ids")
+    int markSending(@Param("ids") Collection<Long> ids, @Param("lockedUntil") LocalDateTime lockedUntil);
+
+    // 節點在寄送途中中斷時，租約到期後放回佇列
+    @Modifying
+    @Query("UPDATE MailOutbox m SET m.status = com.choose.model.MailOutbox.Status.PENDING, m.lockedUntil = NULL " +
+            "WHERE m.status = com.choose.model.MailOutbox.Status.SENDING AND m.lockedUntil < :now")
+    int releaseStale(@Param("now") LocalDateTime now);
+
+    // 停機中斷時將已領取但尚未寄出的郵件放回佇列，不計入嘗試次數
+    @Modifying
+    @Query("UPDATE MailOutbox m SET m.status = com.choose.model.MailOutbox.Status.PENDING, m.lockedUntil = NULL " +
+            "WHERE m.mailId IN :ids AND m.status = com.choose.model.MailOutbox.Status.SENDING")
+    int releaseClaimed(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT COUNT(m) FROM MailOutbox m WHERE m.status = :status")
+    long countByStatus(@Param("status") MailOutbox.Status status);
+
+    // 清除保留期限已過的 SENT / DEAD 郵件（內文含驗證、重設密碼等連結，不長期保存）；DEAD 以最後排定的重試時間計算
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM mail_outbox WHERE (status = 'SENT' AND sent_at < :cutoff) " +
+            "OR (status = 'DEAD' AND next_attempt_at < :cutoff) LIMIT :limit", nativeQuery = true)
+    int deleteSentBefore(@Param("cutoff") LocalDateTime cutoff, @Param("limit") int limit);
+}
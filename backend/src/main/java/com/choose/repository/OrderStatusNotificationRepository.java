@@ -0,0 +1,34 @@
+package com.choose.repository;
+
+import com.choose.model.OrderStatusNotification;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface OrderStatusNotificationRepository extends JpaRepository<OrderStatusNotification, Long> {
+
+    /**
+     * 可寄出摘要的使用者：最後一筆通知已安靜超過 quietBefore，或最早一筆已等待超過 maxWaitBefore
+     */
+    @Query(value = "SELECT user_id FROM order_status_notifications WHERE processed_at IS NULL " +
+            "GROUP BY user_id HAVING MAX(created_at) <= :quietBefore OR MIN(created_at) <= :maxWaitBefore " +
+            "LIMIT :limit", nativeQuery = true)
+    List<Long> findUsersReadyForDigest(@Param("quietBefore") LocalDateTime quietBefore,
+                                       @Param("maxWaitBefore") LocalDateTime maxWaitBefore,
+                                       @Param("limit") int limit);
+
+    List<OrderStatusNotification> findByUserIdAndProcessedAtIsNullOrderByCreatedAtAsc(Long userId);
+
+    // 已彙整寄出的通知超過保留期限後分批刪除
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM order_status_notifications WHERE processed_at < :cutoff LIMIT :limit", nativeQuery = true)
+    int deleteProcessedBefore(@Param("cutoff") LocalDateTime cutoff, @Param("limit") int limit);
+}
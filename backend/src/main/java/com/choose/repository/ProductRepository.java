@@ -1,12 +1,17 @@
 package com.choose.repository;
 
 import com.choose.model.Product;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface ProductRepository extends JpaRepository<Product, Long> {
@@ -22,5 +27,16 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
     List<Product> findByIsFeaturedTrueAndIsListedTrueOrderByCreatedAtDesc();
     
     long countByIsFeaturedTrue();
+
+    // 追加顏色圖片時鎖定商品列，避免並行配置到相同的 ordinal
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p FROM Product p WHERE p.productId = :productId")
+    Optional<Product> findByIdForUpdate(@Param("productId") Long productId);
+
+    // 衍生圖產生完成後回寫到使用該圖片的商品
+    @Transactional
+    @Modifying
+    @Query("UPDATE Product p SET p.imageSrcset = :srcset WHERE p.imageUrl = :imageUrl")
+    int updateImageSrcset(@Param("imageUrl") String imageUrl, @Param("srcset") String srcset);
 }
 
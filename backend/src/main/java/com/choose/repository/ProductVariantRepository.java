@@ -2,8 +2,11 @@ package com.choose.repository;
 
 import com.choose.model.ProductVariant;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -12,5 +15,9 @@ public interface ProductVariantRepository extends JpaRepository<ProductVariant,
     List<ProductVariant> findByProductProductId(Long productId);
     Optional<ProductVariant> findBySkuCode(String skuCode);
     Optional<ProductVariant> findByProductProductIdAndColorIgnoreCaseAndSizeIgnoreCase(Long productId, String color, String size);
+
+    // 一次載入多個規格（含商品），供批次庫存檢查使用
+    @Query("SELECT v FROM ProductVariant v JOIN FETCH v.product WHERE v.variantId IN :variantIds")
+    List<ProductVariant> findAllWithProductByVariantIdIn(@Param("variantIds") Collection<Long> variantIds);
 }
 
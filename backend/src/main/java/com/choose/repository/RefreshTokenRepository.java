@@ -0,0 +1,38 @@
+package com.choose.repository;
+
+import com.choose.model.RefreshToken;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface RefreshTokenRepository extends JpaRepository<RefreshToken, Long> {
+
+    // 輪替時鎖定該列，避免同一 token 被併發使用兩次
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<RefreshToken> findByTokenHash(String tokenHash);
+
+    // 同時清除輪替標記，已輪替的舊 token 之後也不能再藉寬限期換發
+    @Modifying
+    @Query("UPDATE RefreshToken r SET r.revokedAt = COALESCE(r.revokedAt, :now), r.replacedAt = NULL " +
+            "WHERE r.familyId = :familyId AND (r.revokedAt IS NULL OR r.replacedAt IS NOT NULL)")
+    int revokeFamily(@Param("familyId") String familyId, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE RefreshToken r SET r.revokedAt = COALESCE(r.revokedAt, :now), r.replacedAt = NULL " +
+            "WHERE r.user.userId = :userId AND (r.revokedAt IS NULL OR r.replacedAt IS NOT NULL)")
+    int revokeAllByUserId(@Param("userId") Long userId, @Param("now") LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM refresh_tokens WHERE expires_at < :now LIMIT :limit", nativeQuery = true)
+    int deleteExpiredBatch(@Param("now") LocalDateTime now, @Param("limit") int limit);
+}
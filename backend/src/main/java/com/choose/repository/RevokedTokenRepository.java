@@ -0,0 +1,31 @@
+package com.choose.repository;
+
+import com.choose.model.RevokedToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface RevokedTokenRepository extends JpaRepository<RevokedToken, String> {
+
+    List<RevokedToken> findByExpiresAtAfter(LocalDateTime now);
+
+    // 增量同步其他節點新增的撤銷記錄
+    List<RevokedToken> findByRevokedAtAfterAndExpiresAtAfter(LocalDateTime revokedAfter, LocalDateTime now);
+
+    // revoked_at 由資料庫時鐘填入，作為增量同步的起點
+    @Query("SELECT MAX(r.revokedAt) FROM RevokedToken r")
+    Optional<LocalDateTime> findMaxRevokedAt();
+
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM revoked_tokens WHERE expires_at < :now LIMIT :limit", nativeQuery = true)
+    int deleteExpiredBatch(@Param("now") LocalDateTime now, @Param("limit") int limit);
+}
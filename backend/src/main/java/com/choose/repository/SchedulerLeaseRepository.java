@@ -0,0 +1,29 @@
+package com.choose.repository;
+
+import com.choose.model.SchedulerLease;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * 租約時間一律以資料庫時鐘（NOW(3)）計算，避免各節點時鐘不同步
+ */
+@Repository
+public interface SchedulerLeaseRepository extends JpaRepository<SchedulerLease, String> {
+
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO scheduler_leases (name, owner, lease_until) " +
+            "VALUES (:name, :owner, NOW(3) + INTERVAL :seconds SECOND)", nativeQuery = true)
+    int tryInsert(@Param("name") String name, @Param("owner") String owner, @Param("seconds") long seconds);
+
+    // 租約已到期或本來就由自己持有時才接手 / 續約
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE scheduler_leases SET owner = :owner, lease_until = NOW(3) + INTERVAL :seconds SECOND " +
+            "WHERE name = :name AND (lease_until < NOW(3) OR owner = :owner)", nativeQuery = true)
+    int tryAcquire(@Param("name") String name, @Param("owner") String owner, @Param("seconds") long seconds);
+}
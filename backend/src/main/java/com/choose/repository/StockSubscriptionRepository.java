@@ -0,0 +1,42 @@
+package com.choose.repository;
+
+import com.choose.model.StockSubscription;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface StockSubscriptionRepository extends JpaRepository<StockSubscription, Long> {
+
+    Optional<StockSubscription> findByVariantIdAndUserId(Long variantId, Long userId);
+
+    /**
+     * 以 subscription_id 做 keyset 分頁取出下一批待通知訂閱並鎖定；
+     * 其他節點正在處理的資料列直接略過，不會重複寄送
+     */
+    @Query(value = "SELECT * FROM stock_subscriptions WHERE variant_id = :variantId AND notified_at IS NULL " +
+            "AND subscription_id > :afterId ORDER BY subscription_id LIMIT :limit FOR UPDATE SKIP LOCKED",
+            nativeQuery = true)
+    List<StockSubscription> lockPendingPage(@Param("variantId") Long variantId,
+                                            @Param("afterId") long afterId,
+                                            @Param("limit") int limit);
+
+    @Modifying
+    @Query("UPDATE StockSubscription s SET s.notifiedAt = :now WHERE s.subscriptionId IN :ids")
+    int markNotified(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+
+    /**
+     * 已有庫存但仍有待通知訂閱的規格（補償事件遺失，例如重新啟動）
+     */
+    @Query(value = "SELECT DISTINCT s.variant_id FROM stock_subscriptions s " +
+            "JOIN product_variants v ON v.variant_id = s.variant_id " +
+            "WHERE s.notified_at IS NULL AND v.stock > 0 LIMIT :limit", nativeQuery = true)
+    List<Long> findRestockedVariantIds(@Param("limit") int limit);
+}
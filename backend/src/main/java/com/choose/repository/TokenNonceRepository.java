@@ -0,0 +1,31 @@
+package com.choose.repository;
+
+import com.choose.model.TokenNonce;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+@Repository
+public interface TokenNonceRepository extends JpaRepository<TokenNonce, TokenNonce.Key> {
+
+    @Query(value = "SELECT nonce FROM token_nonces WHERE user_id = :userId AND type = :type", nativeQuery = true)
+    Optional<Long> findNonce(@Param("userId") Long userId, @Param("type") String type);
+
+    // 首次使用（nonce = 0 時尚無資料列）：插入成功才算使用成功
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO token_nonces (user_id, type, nonce) VALUES (:userId, :type, 1)", nativeQuery = true)
+    int consumeFirst(@Param("userId") Long userId, @Param("type") String type);
+
+    // nonce 相符才遞增，併發使用同一 token 時只有一個會成功
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE token_nonces SET nonce = nonce + 1 WHERE user_id = :userId AND type = :type AND nonce = :nonce",
+            nativeQuery = true)
+    int consume(@Param("userId") Long userId, @Param("type") String type, @Param("nonce") long nonce);
+}
@@ -2,7 +2,11 @@ package com.choose.repository;
 
 import com.choose.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Optional;
 
@@ -11,5 +15,13 @@ public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByEmail(String email);
     Optional<User> findByEmailAndIsDeletedFalse(String email);
     boolean existsByEmail(String email);
+
+    // 登入時升級雜湊 cost；以舊雜湊為條件，避免覆蓋同時發生的密碼變更
+    @Transactional
+    @Modifying
+    @Query("UPDATE User u SET u.password = :newHash WHERE u.userId = :userId AND u.password = :oldHash")
+    int updatePasswordHash(@Param("userId") Long userId,
+                           @Param("oldHash") String oldHash,
+                           @Param("newHash") String newHash);
 }
 
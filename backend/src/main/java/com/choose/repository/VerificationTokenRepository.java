@@ -4,7 +4,9 @@ import com.choose.model.VerificationToken;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.Optional;
@@ -17,8 +19,16 @@ public interface VerificationTokenRepository extends JpaRepository<VerificationT
     Optional<VerificationToken> findByUserUserIdAndType(Long userId, VerificationToken.TokenType type);
     
     void deleteByUserUserId(Long userId);
+
+    // 舊版 UUID token 使用後刪除；回傳 0 表示已被其他請求使用
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM VerificationToken v WHERE v.id = :id")
+    int deleteTokenById(@Param("id") Long id);
     
+    // 分批刪除過期 token，每次只鎖定少量資料列
+    @Transactional
     @Modifying
-    @Query("DELETE FROM VerificationToken v WHERE v.expiresAt < :now")
-    void deleteExpiredTokens(LocalDateTime now);
+    @Query(value = "DELETE FROM verification_tokens WHERE expires_at < :now LIMIT :limit", nativeQuery = true)
+    int deleteExpiredBatch(@Param("now") LocalDateTime now, @Param("limit") int limit);
 }
@@ -0,0 +1,118 @@
+package com.choose.security;
+
+import com.choose.event.UserChangedEvent;
+import com.choose.model.ClaimsRevocation;
+import com.choose.repository.ClaimsRevocationRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 記錄「claims 已過時」的使用者
+ * 角色變更或刪除帳號後，該時間點之前簽發的 token 不再信任其 claims，
+ * JwtAuthenticationFilter 會改回查詢資料庫取得最新狀態
+ * <p>
+ * 記錄寫入 claims_revocations（與使用者異動同一交易），其他節點與 RevokedTokenRegistry 相同方式
+ * 以 updated_at（資料庫時鐘）增量同步
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ClaimsRevocationRegistry {
+
+    private static final int PRUNE_THRESHOLD = 1000;
+    // 交易提交順序與 updated_at 不一定相同，增量同步時往前多抓一段
+    private static final long SYNC_OVERLAP_SECONDS = 30;
+    private static final LocalDateTime BEGINNING = LocalDateTime.of(2000, 1, 1, 0, 0);
+
+    private final ClaimsRevocationRepository claimsRevocationRepository;
+
+    // userId -> 此時間（毫秒）以前簽發的 token claims 視為過時
+    private final Map<Long, Long> staleBefore = new ConcurrentHashMap<>();
+
+    @Value("${jwt.expiration:86400000}")
+    private Long expiration;
+
+    private volatile boolean loaded;
+    // 已同步到的最大 updated_at（資料庫時鐘）
+    private volatile LocalDateTime watermark;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        watermark = claimsRevocationRepository.findMaxUpdatedAt().orElse(null);
+        LocalDateTime cutoff = LocalDateTime.now().minus(Duration.ofMillis(expiration));
+        claimsRevocationRepository.findByStaleBeforeAfter(cutoff).forEach(this::apply);
+        loaded = true;
+        log.info("Claims revocation registry loaded: {} entries", staleBefore.size());
+    }
+
+    @EventListener
+    public void onUserChanged(UserChangedEvent event) {
+        if (event.invalidatesClaims()) {
+            markStale(event.getUserId());
+        }
+    }
+
+    public void markStale(Long userId) {
+        long now = System.currentTimeMillis();
+        staleBefore.merge(userId, now, Math::max);
+        // 在使用者異動的交易中寫入，其他節點同步後也不再信任舊 token 的 claims
+        claimsRevocationRepository.upsert(userId, toLocalDateTime(now));
+        log.info("JWT claims marked stale: userId={}", userId);
+        prune();
+    }
+
+    /**
+     * 增量同步其他節點寫入的記錄
+     */
+    @Scheduled(fixedDelayString = "${jwt.revocation.sync-interval-ms:10000}")
+    public void syncFromDatabase() {
+        if (!loaded) {
+            return;
+        }
+        LocalDateTime since = watermark != null ? watermark.minusSeconds(SYNC_OVERLAP_SECONDS) : BEGINNING;
+        LocalDateTime latest = watermark;
+        for (ClaimsRevocation revocation : claimsRevocationRepository.findByUpdatedAtAfter(since)) {
+            apply(revocation);
+            if (revocation.getUpdatedAt() != null && (latest == null || revocation.getUpdatedAt().isAfter(latest))) {
+                latest = revocation.getUpdatedAt();
+            }
+        }
+        watermark = latest;
+        prune();
+    }
+
+    public boolean isStale(Long userId, Date issuedAt) {
+        Long revokedAt = staleBefore.get(userId);
+        return revokedAt != null && issuedAt.getTime() <= revokedAt;
+    }
+
+    private void apply(ClaimsRevocation revocation) {
+        long millis = revocation.getStaleBefore().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        staleBefore.merge(revocation.getUserId(), millis, Math::max);
+    }
+
+    private void prune() {
+        if (staleBefore.size() > PRUNE_THRESHOLD) {
+            // 超過 token 最長效期的記錄已無作用（資料列由 TokenCleanupService 清除）
+            long cutoff = System.currentTimeMillis() - expiration;
+            staleBefore.values().removeIf(revokedAt -> revokedAt < cutoff);
+        }
+    }
+
+    private static LocalDateTime toLocalDateTime(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+    }
+}
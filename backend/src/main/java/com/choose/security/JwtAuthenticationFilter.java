@@ -1,13 +1,13 @@
 package com.choose.security;
 
 import com.choose.model.User;
-import com.choose.service.UserService;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
-import jakarta.servlet.http.Cookie;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.lang.NonNull;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
@@ -18,15 +18,24 @@ import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
 import java.util.Collections;
+import java.util.Date;
 
 @Component
 @RequiredArgsConstructor
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtUtil jwtUtil;
-    private final UserService userService;
+    private final ClaimsRevocationRegistry claimsRevocationRegistry;
+    private final UserPrincipalCache userPrincipalCache;
+    private final RevokedTokenRegistry revokedTokenRegistry;
 
-    private static final String AUTH_COOKIE_NAME = "auth_token";
+    // 啟用後，新近簽發的 token 直接以 claims 建立 principal，不查詢資料庫
+    @Value("${jwt.stateless-auth.enabled:false}")
+    private boolean statelessAuth;
+
+    // claims 可信任的時間長度（自簽發起算），超過後回到資料庫驗證
+    @Value("${jwt.stateless-auth.trust-window-seconds:900}")
+    private long trustWindowSeconds;
 
     @Override
     protected void doFilterInternal(
@@ -34,12 +43,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             @NonNull HttpServletResponse response,
             @NonNull FilterChain filterChain
     ) throws ServletException, IOException {
-        String jwt = extractJwtFromCookie(request);
-        
-        // 回退到 Authorization Header（保持相容性）
-        if (jwt == null) {
-            jwt = extractJwtFromHeader(request);
-        }
+        String jwt = jwtUtil.resolveToken(request);
 
         if (jwt == null) {
             filterChain.doFilter(request, response);
@@ -47,12 +51,16 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         }
         
         try {
-            String email = jwtUtil.extractEmail(jwt);
+            // 單次解析：簽章、到期與 claims 一併取得
+            Claims claims = jwtUtil.validateAndExtractClaims(jwt)
+                    .filter(c -> !revokedTokenRegistry.isRevoked(c.getId()))
+                    .orElse(null);
+            String email = claims != null ? claims.getSubject() : null;
             
             if (email != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                User user = userService.findByEmail(email).orElse(null);
+                User user = resolveUser(claims);
                 
-                if (user != null && jwtUtil.validateToken(jwt, email)) {
+                if (user != null) {
                     String role = "ROLE_" + user.getRole().name();
                     UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
                             user,
@@ -71,25 +79,35 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
 
-    // 從 Cookie 中取得 JWT
-    private String extractJwtFromCookie(HttpServletRequest request) {
-        Cookie[] cookies = request.getCookies();
-        if (cookies != null) {
-            for (Cookie cookie : cookies) {
-                if (AUTH_COOKIE_NAME.equals(cookie.getName())) {
-                    return cookie.getValue();
-                }
-            }
+    /**
+     * 取得 principal：claims 可信任時直接由 claims 建立，否則經由使用者快取查詢
+     */
+    private User resolveUser(Claims claims) {
+        if (statelessAuth && canTrustClaims(claims)) {
+            return userFromClaims(claims);
         }
-        return null;
+        return userPrincipalCache.findByEmail(claims.getSubject()).orElse(null);
     }
 
-    //   從 Authorization Header 取得 JWT（相容性用）
-    private String extractJwtFromHeader(HttpServletRequest request) {
-        String authHeader = request.getHeader("Authorization");
-        if (authHeader != null && authHeader.startsWith("Bearer ")) {
-            return authHeader.substring(7);
+    private boolean canTrustClaims(Claims claims) {
+        Long userId = claims.get("userId", Long.class);
+        Date issuedAt = claims.getIssuedAt();
+        if (userId == null || issuedAt == null || claims.get("role", String.class) == null) {
+            return false;
         }
-        return null;
+        long ageMillis = System.currentTimeMillis() - issuedAt.getTime();
+        return ageMillis <= trustWindowSeconds * 1000
+                && !claimsRevocationRegistry.isStale(userId, issuedAt);
+    }
+
+    /**
+     * 僅含 userId / email / role 的 principal，需要完整資料時以 UserService.loadCurrentUser 載入
+     */
+    private User userFromClaims(Claims claims) {
+        User user = new User();
+        user.setUserId(claims.get("userId", Long.class));
+        user.setEmail(claims.getSubject());
+        user.setRole(User.Role.valueOf(claims.get("role", String.class)));
+        return user;
     }
 }
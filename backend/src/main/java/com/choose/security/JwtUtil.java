@@ -1,16 +1,28 @@
 package com.choose.security;
 
+import com.choose.common.BoundedTtlCache;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Base64;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
 import java.util.function.Function;
 
 @Component
@@ -19,12 +31,28 @@ public class JwtUtil {
     @Value("${jwt.secret:chooseMVPSecretKey12345678901234567890}")
     private String secret;
 
-    @Value("${jwt.expiration:86400000}")
-    private Long expiration; // 24 hours in milliseconds
+    public static final String AUTH_COOKIE_NAME = "auth_token";
 
-    private SecretKey getSigningKey() {
-        byte[] keyBytes = secret.getBytes(StandardCharsets.UTF_8);
-        return Keys.hmacShaKeyFor(keyBytes);
+    @Value("${jwt.expiration:900000}")
+    private Long expiration; // 15 minutes in milliseconds（長效登入改由 refresh token 延續）
+
+    @Value("${jwt.claims-cache.max-size:10000}")
+    private int claimsCacheMaxSize;
+
+    // 啟動時建立一次，避免每個請求重新產生金鑰與 parser
+    private SecretKey signingKey;
+    private JwtParser parser;
+
+    // 已驗證 token（以 SHA-256 雜湊為 key）的 claims，保留至 token 到期
+    private BoundedTtlCache<String, Claims> claimsCache;
+
+    @PostConstruct
+    void init() {
+        signingKey = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+        parser = Jwts.parser()
+                .verifyWith(signingKey)
+                .build();
+        claimsCache = new BoundedTtlCache<>(claimsCacheMaxSize, Duration.ofMillis(expiration));
     }
 
     public String generateToken(Long userId, String email, String role) {
@@ -36,14 +64,55 @@ public class JwtUtil {
 
     private String createToken(Map<String, Object> claims, String subject) {
         return Jwts.builder()
+                .id(UUID.randomUUID().toString()) // jti，撤銷時以此識別
                 .claims(claims)
                 .subject(subject)
                 .issuedAt(new Date(System.currentTimeMillis()))
                 .expiration(new Date(System.currentTimeMillis() + expiration))
-                .signWith(getSigningKey())
+                .signWith(signingKey)
                 .compact();
     }
 
+    /**
+     * 驗證 token 並回傳 claims（每個請求只解析一次）
+     * 簽章錯誤、格式錯誤或已過期時回傳 empty
+     */
+    public Optional<Claims> validateAndExtractClaims(String token) {
+        String cacheKey = hashToken(token);
+        Claims cached = claimsCache.get(cacheKey);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+
+        try {
+            // parseSignedClaims 同時驗證簽章與 exp
+            Claims claims = parser.parseSignedClaims(token).getPayload();
+            claimsCache.put(cacheKey, claims, claims.getExpiration().getTime());
+            return Optional.of(claims);
+        } catch (JwtException | IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * 從請求取得 JWT：優先讀取 HttpOnly Cookie，回退到 Authorization Header（保持相容性）
+     */
+    public String resolveToken(HttpServletRequest request) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies != null) {
+            for (Cookie cookie : cookies) {
+                if (AUTH_COOKIE_NAME.equals(cookie.getName())) {
+                    return cookie.getValue();
+                }
+            }
+        }
+        String authHeader = request.getHeader("Authorization");
+        if (authHeader != null && authHeader.startsWith("Bearer ")) {
+            return authHeader.substring(7);
+        }
+        return null;
+    }
+
     public String extractEmail(String token) {
         return extractClaim(token, Claims::getSubject);
     }
@@ -68,11 +137,7 @@ public class JwtUtil {
     }
 
     private Claims extractAllClaims(String token) {
-        return Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
+        return parser.parseSignedClaims(token).getPayload();
     }
 
     public Boolean isTokenExpired(String token) {
@@ -80,8 +145,18 @@ public class JwtUtil {
     }
 
     public Boolean validateToken(String token, String email) {
-        final String extractedEmail = extractEmail(token);
-        return (extractedEmail.equals(email) && !isTokenExpired(token));
+        return validateAndExtractClaims(token)
+                .map(claims -> email.equals(claims.getSubject()))
+                .orElse(false);
     }
-}
 
+    private String hashToken(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
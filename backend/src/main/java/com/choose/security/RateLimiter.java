@@ -0,0 +1,135 @@
+package com.choose.security;
+
+import com.choose.common.RateLimitExceededException;
+import com.choose.config.RateLimitProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Token bucket 請求頻率限制
+ * bucket 分散在多個 stripe，各 stripe 以自己的鎖保護並依 LRU 淘汰，
+ * 不同 key 的請求幾乎不會互相等待，記憶體用量也有上限
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RateLimiter {
+
+    private static final int STRIPES = 32;
+
+    private final RateLimitProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    private Stripe[] stripes;
+
+    @PostConstruct
+    void init() {
+        int maxPerStripe = Math.max(16, properties.getMaxKeys() / STRIPES);
+        stripes = new Stripe[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe(maxPerStripe);
+        }
+        Gauge.builder("rate_limit.buckets", this, RateLimiter::bucketCount)
+                .description("Token buckets currently tracked by the rate limiter")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 檢查端點的 IP 與 email 限制，任一超過即拋出 RateLimitExceededException（429）
+     * @param email 可為 null（只檢查 IP）
+     */
+    public void check(String endpoint, String ip, String email) {
+        RateLimitProperties.Endpoint config = properties.getEndpoints().get(endpoint);
+        if (!properties.isEnabled() || config == null) {
+            return;
+        }
+
+        long waitNanos = 0;
+        if (config.getIp() != null && ip != null) {
+            waitNanos = tryConsume(endpoint + "|ip|" + ip, config.getIp());
+        }
+        if (waitNanos == 0 && config.getEmail() != null && email != null) {
+            waitNanos = tryConsume(endpoint + "|email|" + email.trim().toLowerCase(Locale.ROOT), config.getEmail());
+        }
+
+        if (waitNanos > 0) {
+            meterRegistry.counter("rate_limit.requests", "endpoint", endpoint, "result", "rejected").increment();
+            long retryAfterSeconds = Math.max(1, (waitNanos + 999_999_999) / 1_000_000_000);
+            log.warn("Rate limit exceeded: endpoint={}, ip={}, retryAfter={}s", endpoint, ip, retryAfterSeconds);
+            throw new RateLimitExceededException("請求過於頻繁，請稍後再試", retryAfterSeconds);
+        }
+        meterRegistry.counter("rate_limit.requests", "endpoint", endpoint, "result", "allowed").increment();
+    }
+
+    /**
+     * 嘗試取用一個 token；成功回傳 0，否則回傳需等待的奈秒數
+     */
+    private long tryConsume(String key, RateLimitProperties.Limit limit) {
+        Stripe stripe = stripes[(key.hashCode() & 0x7fffffff) % STRIPES];
+        long now = System.nanoTime();
+        synchronized (stripe) {
+            Bucket bucket = stripe.get(key);
+            if (bucket == null) {
+                bucket = new Bucket(limit.getCapacity(), now);
+                stripe.put(key, bucket);
+            }
+            return bucket.tryConsume(limit, now);
+        }
+    }
+
+    private int bucketCount() {
+        int total = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                total += stripe.size();
+            }
+        }
+        return total;
+    }
+
+    private static class Bucket {
+        private double tokens;
+        private long lastRefillNanos;
+
+        Bucket(double tokens, long now) {
+            this.tokens = tokens;
+            this.lastRefillNanos = now;
+        }
+
+        long tryConsume(RateLimitProperties.Limit limit, long now) {
+            double refillPerNano = limit.getRefillPerMinute() / 60_000_000_000d;
+            tokens = Math.min(limit.getCapacity(), tokens + (now - lastRefillNanos) * refillPerNano);
+            lastRefillNanos = now;
+            if (tokens >= 1) {
+                tokens -= 1;
+                return 0;
+            }
+            if (refillPerNano <= 0) {
+                return 60_000_000_000L;
+            }
+            return (long) Math.ceil((1 - tokens) / refillPerNano);
+        }
+    }
+
+    private static class Stripe extends LinkedHashMap<String, Bucket> {
+        private final int maxEntries;
+
+        Stripe(int maxEntries) {
+            super(16, 0.75f, true);
+            this.maxEntries = maxEntries;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Bucket> eldest) {
+            return size() > maxEntries;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.choose.security;
+
+import com.choose.common.BloomFilter;
+import com.choose.model.RevokedToken;
+import com.choose.repository.RevokedTokenRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 已撤銷 access token 的記憶體索引
+ * 先查 Bloom filter（絕大多數未撤銷的 token 在此即返回），命中時再以精確集合確認。
+ * 撤銷記錄寫入 revoked_tokens，啟動時與定期增量同步，讓其他節點與重啟後都能快速重建。
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RevokedTokenRegistry {
+
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+    // 交易提交順序與 revoked_at 不一定相同，增量同步時往前多抓一段
+    private static final long SYNC_OVERLAP_SECONDS = 30;
+    private static final LocalDateTime BEGINNING = LocalDateTime.of(2000, 1, 1, 0, 0);
+
+    private final RevokedTokenRepository revokedTokenRepository;
+
+    @Value("${jwt.revocation.expected-insertions:100000}")
+    private int expectedInsertions;
+
+    // jti -> 到期時間（毫秒）
+    private final Map<String, Long> revoked = new ConcurrentHashMap<>();
+    private volatile BloomFilter bloomFilter = new BloomFilter(1, FALSE_POSITIVE_RATE);
+    private volatile boolean loaded;
+    // 已同步到的最大 revoked_at（資料庫時鐘），不使用本機時間，避免節點時鐘或時區不同而漏掉撤銷記錄
+    private volatile LocalDateTime watermark;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        // 先取水位再載入：兩者之間新增的記錄會在下次同步補上
+        watermark = revokedTokenRepository.findMaxRevokedAt().orElse(null);
+        for (RevokedToken token : revokedTokenRepository.findByExpiresAtAfter(LocalDateTime.now())) {
+            revoked.put(token.getJti(), toEpochMillis(token.getExpiresAt()));
+        }
+        loaded = true;
+        rebuild();
+        log.info("Revoked token registry loaded: {} entries", revoked.size());
+    }
+
+    /**
+     * 是否已撤銷（沒有 jti 的舊 token 視為未撤銷）
+     */
+    public boolean isRevoked(String jti) {
+        if (jti == null) {
+            return false;
+        }
+        return bloomFilter.mightContain(jti) && revoked.containsKey(jti);
+    }
+
+    /**
+     * 撤銷 token：寫入資料庫並立即加入本機索引
+     */
+    public void revoke(String jti, Date expiresAt) {
+        if (jti == null || expiresAt == null || expiresAt.before(new Date())) {
+            return;
+        }
+        RevokedToken token = new RevokedToken();
+        token.setJti(jti);
+        token.setExpiresAt(LocalDateTime.ofInstant(expiresAt.toInstant(), ZoneId.systemDefault()));
+        revokedTokenRepository.save(token);
+        add(jti, expiresAt.getTime());
+        log.info("Access token revoked: jti={}", jti);
+    }
+
+    /**
+     * 增量同步其他節點新增的撤銷記錄
+     */
+    @Scheduled(fixedDelayString = "${jwt.revocation.sync-interval-ms:10000}")
+    public void syncFromDatabase() {
+        if (!loaded) {
+            return;
+        }
+        LocalDateTime since = watermark != null ? watermark.minusSeconds(SYNC_OVERLAP_SECONDS) : BEGINNING;
+        LocalDateTime latest = watermark;
+        // expires_at 由簽發節點依 token 到期時間寫入，以本機時間比較
+        for (RevokedToken token : revokedTokenRepository.findByRevokedAtAfterAndExpiresAtAfter(since, LocalDateTime.now())) {
+            if (!revoked.containsKey(token.getJti())) {
+                add(token.getJti(), toEpochMillis(token.getExpiresAt()));
+            }
+            if (token.getRevokedAt() != null && (latest == null || token.getRevokedAt().isAfter(latest))) {
+                latest = token.getRevokedAt();
+            }
+        }
+        watermark = latest;
+    }
+
+    /**
+     * Bloom filter 無法刪除元素，定期以未過期的記錄重建
+     */
+    @Scheduled(fixedDelayString = "${jwt.revocation.rebuild-interval-ms:3600000}",
+            initialDelayString = "${jwt.revocation.rebuild-interval-ms:3600000}")
+    public void rebuild() {
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            revoked.values().removeIf(expiresAt -> expiresAt < now);
+            BloomFilter rebuilt = new BloomFilter(Math.max(expectedInsertions, revoked.size() * 2), FALSE_POSITIVE_RATE);
+            revoked.keySet().forEach(rebuilt::put);
+            bloomFilter = rebuilt;
+        }
+        // 過期資料列由 TokenCleanupService 分批清除
+        log.debug("Revoked token filter rebuilt: entries={}", revoked.size());
+    }
+
+    // 與 rebuild 互斥，避免新撤銷的 token 在重建過程中遺失於 Bloom filter
+    private synchronized void add(String jti, long expiresAtMillis) {
+        revoked.put(jti, expiresAtMillis);
+        bloomFilter.put(jti);
+    }
+
+    private static long toEpochMillis(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,90 @@
+package com.choose.security;
+
+import com.choose.common.BoundedTtlCache;
+import com.choose.event.UserChangedEvent;
+import com.choose.model.User;
+import com.choose.service.UserService;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 驗證用的使用者快取（以 email 為 key）
+ * 有筆數與存活時間上限；使用者資料異動時由 UserChangedEvent 於 commit 後清除
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class UserPrincipalCache {
+
+    private final UserService userService;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${jwt.user-cache.max-size:10000}")
+    private int maxSize;
+
+    @Value("${jwt.user-cache.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    private BoundedTtlCache<String, User> cache;
+
+    // 每次清除快取時遞增；未命中時記下讀取資料庫前的版本，期間若有異動就不保留讀到的舊資料
+    private final AtomicLong invalidations = new AtomicLong();
+
+    @PostConstruct
+    void init() {
+        cache = new BoundedTtlCache<>(maxSize, Duration.ofSeconds(ttlSeconds));
+
+        FunctionCounter.builder("auth.user_cache.gets", cache, BoundedTtlCache::hitCount)
+                .tag("result", "hit")
+                .description("Authentication user cache lookups")
+                .register(meterRegistry);
+        FunctionCounter.builder("auth.user_cache.gets", cache, BoundedTtlCache::missCount)
+                .tag("result", "miss")
+                .description("Authentication user cache lookups")
+                .register(meterRegistry);
+        Gauge.builder("auth.user_cache.size", cache, BoundedTtlCache::size)
+                .description("Cached authentication principals")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 先查快取，未命中才查詢資料庫（查無使用者不快取）
+     */
+    public Optional<User> findByEmail(String email) {
+        User cached = cache.get(email);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        long version = invalidations.get();
+        Optional<User> user = userService.findByEmail(email);
+        user.ifPresent(u -> {
+            cache.put(email, u);
+            // 讀取期間有使用者異動 commit（清除可能早於上面的 put），移除這筆可能過期的資料；
+            // 若清除晚於此處的檢查，清除本身會移除這筆資料
+            if (invalidations.get() != version) {
+                cache.invalidate(email);
+            }
+        });
+        return user;
+    }
+
+    // commit 之後才清除，避免交易進行中被併發請求以舊資料重新填入；
+    // 先遞增版本再清除，讓清除前已從資料庫讀到舊資料的請求不會把它留在快取
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        invalidations.incrementAndGet();
+        cache.invalidate(event.getEmail());
+        log.debug("User principal cache evicted: userId={}, type={}", event.getUserId(), event.getType());
+    }
+}
@@ -0,0 +1,98 @@
+package com.choose.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * 自適應寄送速率（AIMD）
+ * 成功時緩慢提高速率，收到供應商的暫時性限流回應（421 / 45x / 4.7.x）時速率減半
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class AdaptiveMailThrottle {
+
+    private static final Pattern THROTTLE_REPLY = Pattern.compile("\\b(421|450|451|452|454)\\b|\\b4\\.7\\.\\d+\\b");
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.mail.throttle.initial-per-second:5}")
+    private double initialRate;
+
+    @Value("${app.mail.throttle.min-per-second:0.5}")
+    private double minRate;
+
+    @Value("${app.mail.throttle.max-per-second:20}")
+    private double maxRate;
+
+    // 每次成功增加的速率（封 / 秒）
+    @Value("${app.mail.throttle.increase-step:0.1}")
+    private double increaseStep;
+
+    private double rate;
+    private long nextSlotNanos;
+
+    @PostConstruct
+    void init() {
+        rate = initialRate;
+        nextSlotNanos = System.nanoTime();
+        Gauge.builder("mail.throttle.rate", this, AdaptiveMailThrottle::currentRate)
+                .description("Current permitted mail send rate per second")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 等待下一個可寄送的時間點
+     */
+    public void acquire() throws InterruptedException {
+        long waitNanos;
+        synchronized (this) {
+            long now = System.nanoTime();
+            long slot = Math.max(now, nextSlotNanos);
+            nextSlotNanos = slot + (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+            waitNanos = slot - now;
+        }
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    public synchronized void onSuccess() {
+        rate = Math.min(maxRate, rate + increaseStep);
+    }
+
+    /**
+     * 依例外判斷是否為限流回應；是的話降速並回傳 true
+     */
+    public boolean onFailure(Exception e) {
+        if (!isThrottleReply(e)) {
+            return false;
+        }
+        synchronized (this) {
+            rate = Math.max(minRate, rate / 2);
+            log.warn("SMTP throttling detected, send rate lowered to {}/s", String.format("%.2f", rate));
+        }
+        return true;
+    }
+
+    public synchronized double currentRate() {
+        return rate;
+    }
+
+    private static boolean isThrottleReply(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t.getMessage() != null && THROTTLE_REPLY.matcher(t.getMessage()).find()) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,83 @@
+package com.choose.service;
+
+import com.choose.event.VariantRestockedEvent;
+import com.choose.repository.StockSubscriptionRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 到貨通知寄送：補貨交易提交後記下規格，由排程分批寄出，避免拖慢後台的庫存更新請求
+ * 另外定期掃描已有庫存但仍有待通知訂閱的規格，補償程序重啟時遺失的事件
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BackInStockJob {
+
+    private static final String SWEEP_LEASE_NAME = "back-in-stock-sweep";
+
+    private final StockSubscriptionService stockSubscriptionService;
+    private final StockSubscriptionRepository subscriptionRepository;
+    private final SchedulerLeaseService schedulerLeaseService;
+
+    // 已補貨、等待寄送的規格（同一規格短時間內多次補貨只會處理一次）
+    private final Set<Long> restockedVariants = ConcurrentHashMap.newKeySet();
+
+    @Value("${app.back-in-stock.chunk-size:200}")
+    private int chunkSize;
+
+    @Value("${app.back-in-stock.sweep-variants:50}")
+    private int sweepVariants;
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onVariantRestocked(VariantRestockedEvent event) {
+        restockedVariants.add(event.getVariantId());
+    }
+
+    @Scheduled(fixedDelayString = "${app.back-in-stock.interval-ms:5000}")
+    public void run() {
+        if (restockedVariants.isEmpty()) {
+            return;
+        }
+        List<Long> variantIds = new ArrayList<>(restockedVariants);
+        restockedVariants.removeAll(variantIds);
+        variantIds.forEach(this::fanOut);
+    }
+
+    @Scheduled(fixedDelayString = "${app.back-in-stock.sweep-interval-ms:600000}")
+    public void sweep() {
+        if (!schedulerLeaseService.tryAcquire(SWEEP_LEASE_NAME, Duration.ofMinutes(10))) {
+            return;
+        }
+        subscriptionRepository.findRestockedVariantIds(sweepVariants).forEach(this::fanOut);
+    }
+
+    private void fanOut(Long variantId) {
+        long afterId = 0;
+        int chunks = 0;
+        try {
+            Long lastId;
+            while ((lastId = stockSubscriptionService.notifyNextChunk(variantId, afterId, chunkSize)) != null) {
+                afterId = lastId;
+                chunks++;
+            }
+        } catch (RuntimeException e) {
+            // 已提交的批次不會重寄，剩下的由下次掃描接手
+            log.error("Back-in-stock fan-out failed: variantId={}, afterId={}", variantId, afterId, e);
+        }
+        if (chunks > 0) {
+            log.info("Back-in-stock fan-out finished: variantId={}, chunks={}", variantId, chunks);
+        }
+    }
+}
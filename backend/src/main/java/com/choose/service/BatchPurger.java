@@ -0,0 +1,71 @@
+package com.choose.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.function.BiFunction;
+
+/**
+ * 排程清理共用的分批刪除
+ * 以 DELETE ... LIMIT 分批刪除，每批各自提交，避免長時間鎖表；各資料表的清理排程由擁有該表的服務負責
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class BatchPurger {
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.cleanup.batch-size:1000}")
+    private int batchSize;
+
+    // 每批之間暫停，讓其他交易有機會取得鎖
+    @Value("${app.cleanup.batch-pause-ms:50}")
+    private long batchPauseMillis;
+
+    // 單次執行的批數上限，剩餘的留到下一輪
+    @Value("${app.cleanup.max-batches:500}")
+    private int maxBatches;
+
+    /**
+     * 分批刪除 cutoff 之前的資料列
+     * @param deleteBatch 參數為 cutoff 與批次大小，回傳該批刪除的筆數
+     */
+    public void purge(String table, LocalDateTime cutoff, BiFunction<LocalDateTime, Integer, Integer> deleteBatch) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        long total = 0;
+        int batches = 0;
+        try {
+            int deleted;
+            do {
+                deleted = deleteBatch.apply(cutoff, batchSize);
+                total += deleted;
+                batches++;
+                if (deleted == batchSize && batchPauseMillis > 0) {
+                    Thread.sleep(batchPauseMillis);
+                }
+            } while (deleted == batchSize && batches < maxBatches);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            log.error("Cleanup failed: table={}, purgedSoFar={}", table, total, e);
+        } finally {
+            sample.stop(Timer.builder("cleanup.duration")
+                    .tag("table", table)
+                    .description("Time spent purging expired rows")
+                    .register(meterRegistry));
+            Counter.builder("cleanup.purged.rows")
+                    .tag("table", table)
+                    .description("Expired rows purged by scheduled cleanup")
+                    .register(meterRegistry)
+                    .increment(total);
+        }
+        log.info("Expired rows purged: table={}, rows={}, batches={}", table, total, batches);
+    }
+}
@@ -6,12 +6,22 @@ import com.choose.model.User;
 import com.choose.repository.CartItemRepository;
 import com.choose.repository.ProductVariantRepository;
 import com.choose.repository.UserRepository;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -103,5 +113,145 @@ public class CartService {
     public void clearCart(Long userId) {
         cartItemRepository.deleteByUserUserId(userId);
     }
+
+    /**
+     * 批次套用購物車異動（新增 / 更新數量 / 移除），全部在同一個交易內完成。
+     * 購物車與其規格一次載入，新加入的規格再以單一 IN 查詢載入，最後統一檢查庫存。
+     *
+     * @return 異動後的完整購物車
+     */
+    @Transactional
+    public List<CartItem> applyOperations(Long userId, List<CartOperation> operations) {
+        List<CartItem> currentItems = cartItemRepository.findWithVariantByUserUserId(userId);
+
+        Map<Long, CartItem> itemsById = new HashMap<>();
+        Map<Long, CartItem> itemsByVariantId = new LinkedHashMap<>();
+        Map<Long, ProductVariant> variants = new HashMap<>();
+        for (CartItem item : currentItems) {
+            itemsById.put(item.getCartItemId(), item);
+            itemsByVariantId.put(item.getVariant().getVariantId(), item);
+            variants.put(item.getVariant().getVariantId(), item.getVariant());
+        }
+
+        // 只有購物車中尚未存在的規格需要額外查詢
+        Set<Long> missingVariantIds = operations.stream()
+                .filter(op -> op.getType() == CartOperation.Type.ADD)
+                .map(op -> requireField(op.getVariantId(), "variantId is required for ADD"))
+                .filter(variantId -> !variants.containsKey(variantId))
+                .collect(Collectors.toSet());
+        if (!missingVariantIds.isEmpty()) {
+            productVariantRepository.findAllWithProductByVariantIdIn(missingVariantIds)
+                    .forEach(variant -> variants.put(variant.getVariantId(), variant));
+        }
+
+        Map<Long, CartItem> removedByVariantId = new HashMap<>();
+        // 本批次新增或更新過的規格；未異動的項目即使已缺貨也不影響這次操作
+        Set<Long> touchedVariantIds = new HashSet<>();
+        for (CartOperation op : operations) {
+            switch (op.getType()) {
+                case ADD -> {
+                    Long variantId = op.getVariantId();
+                    int quantity = requirePositive(op.getQuantity());
+                    ProductVariant variant = variants.get(variantId);
+                    if (variant == null) {
+                        throw new IllegalArgumentException("Product variant not found");
+                    }
+                    CartItem item = itemsByVariantId.get(variantId);
+                    if (item == null) {
+                        // 同一批次先移除再加入時沿用原本的資料列，避免違反 uk_user_variant
+                        item = removedByVariantId.remove(variantId);
+                        if (item != null) {
+                            item.setQuantity(0);
+                            itemsById.put(item.getCartItemId(), item);
+                        } else {
+                            item = new CartItem();
+                            item.setUser(userRepository.getReferenceById(userId));
+                            item.setVariant(variant);
+                            item.setQuantity(0);
+                        }
+                        itemsByVariantId.put(variantId, item);
+                    }
+                    item.setQuantity(item.getQuantity() + quantity);
+                    touchedVariantIds.add(variantId);
+                }
+                case UPDATE -> {
+                    CartItem item = requireCartItem(itemsById, op.getCartItemId());
+                    item.setQuantity(requirePositive(op.getQuantity()));
+                    touchedVariantIds.add(item.getVariant().getVariantId());
+                }
+                case REMOVE -> {
+                    CartItem item = requireCartItem(itemsById, op.getCartItemId());
+                    itemsById.remove(item.getCartItemId());
+                    itemsByVariantId.remove(item.getVariant().getVariantId());
+                    removedByVariantId.put(item.getVariant().getVariantId(), item);
+                }
+            }
+        }
+
+        // Check stock（只檢查本批次新增或更新的規格）
+        for (Long variantId : touchedVariantIds) {
+            CartItem item = itemsByVariantId.get(variantId);
+            if (item != null && item.getQuantity() > item.getVariant().getStock()) {
+                throw new IllegalArgumentException("Insufficient stock for variant: "
+                        + item.getVariant().getSkuCode() + ". Available: " + item.getVariant().getStock());
+            }
+        }
+
+        if (!removedByVariantId.isEmpty()) {
+            cartItemRepository.deleteAllInBatch(removedByVariantId.values());
+        }
+        List<CartItem> newItems = itemsByVariantId.values().stream()
+                .filter(item -> item.getCartItemId() == null)
+                .toList();
+        if (!newItems.isEmpty()) {
+            cartItemRepository.saveAll(newItems);
+        }
+        // 既有項目的數量變更由 dirty checking 於 commit 時以 JDBC batch 寫回
+
+        return new ArrayList<>(itemsByVariantId.values());
+    }
+
+    private CartItem requireCartItem(Map<Long, CartItem> itemsById, Long cartItemId) {
+        if (cartItemId == null) {
+            throw new IllegalArgumentException("cartItemId is required");
+        }
+        // 只在使用者自己的購物車中查找，等同擁有權檢查
+        CartItem item = itemsById.get(cartItemId);
+        if (item == null) {
+            throw new IllegalArgumentException("Cart item not found");
+        }
+        return item;
+    }
+
+    private int requirePositive(Integer quantity) {
+        if (quantity == null || quantity <= 0) {
+            throw new IllegalArgumentException("Quantity must be positive");
+        }
+        return quantity;
+    }
+
+    private <T> T requireField(T value, String message) {
+        if (value == null) {
+            throw new IllegalArgumentException(message);
+        }
+        return value;
+    }
+
+    /**
+     * 單一購物車異動指令
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class CartOperation {
+        private Type type;
+        private Long cartItemId;
+        private Long variantId;
+        private Integer quantity;
+
+        public enum Type {
+            ADD, UPDATE, REMOVE
+        }
+    }
 }
 
@@ -0,0 +1,130 @@
+package com.choose.service;
+
+import com.choose.repository.ContactMessageRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 客服案件編號 (CS-XXXX) 產生器
+ * 每次向 id_sequences 保留一個區段後由記憶體發號，多個節點各自取得不重疊的區段；
+ * 重啟或區段未用完時會留下空號，但不會重複
+ * <p>
+ * 除了目前使用中的區段，另由背景執行緒預先保留下一個區段：createMessage 已在交易中持有連線，
+ * 若在請求執行緒內以 REQUIRES_NEW 保留區段會同時需要第二條連線，併發時可能耗盡連線池
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CaseNumberGenerator {
+
+    static final String SEQUENCE_NAME = "contact_case_number";
+
+    private final SequenceBlockAllocator sequenceBlockAllocator;
+    private final ContactMessageRepository contactMessageRepository;
+
+    @Value("${app.case-number.block-size:50}")
+    private int blockSize;
+
+    private ThreadPoolExecutor refillExecutor;
+
+    // 目前區段中下一個可用號碼與區段上限（不含）
+    private long next;
+    private long limit;
+    // 預先保留的下一個區段起點；-1 表示尚未保留
+    private long standbyStart = -1;
+    private boolean refilling;
+
+    @PostConstruct
+    void init() {
+        // 同一時間最多只有一個補充工作（由 refilling 旗標控制）
+        refillExecutor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(1),
+                r -> {
+                    Thread thread = new Thread(r, "case-number-refill");
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.DiscardPolicy());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        refillExecutor.shutdown();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void prefill() {
+        triggerRefill();
+    }
+
+    public String nextCaseNumber() {
+        synchronized (this) {
+            if (next >= limit && standbyStart >= 0) {
+                next = standbyStart;
+                limit = next + blockSize;
+                standbyStart = -1;
+            }
+            if (next < limit) {
+                long value = next++;
+                triggerRefill();
+                return format(value);
+            }
+        }
+
+        // 兩個區段都已用完（短時間大量建立或背景保留失敗）：不持有鎖直接保留，其他執行緒不會因此排隊等待連線
+        long start = reserve();
+        synchronized (this) {
+            if (next >= limit) {
+                next = start;
+                limit = start + blockSize;
+            } else if (standbyStart < 0) {
+                standbyStart = start;
+            }
+            // 其他情況下這個區段不再使用，只會留下空號
+            long value = next++;
+            triggerRefill();
+            return format(value);
+        }
+    }
+
+    // 呼叫端須持有 this 的鎖
+    private void triggerRefill() {
+        if (refilling || standbyStart >= 0) {
+            return;
+        }
+        refilling = true;
+        refillExecutor.execute(() -> {
+            long start = -1;
+            try {
+                start = reserve();
+            } catch (RuntimeException e) {
+                log.warn("Case number block prefetch failed, will retry on next allocation", e);
+            }
+            synchronized (this) {
+                if (start >= 0 && standbyStart < 0) {
+                    standbyStart = start;
+                }
+                refilling = false;
+            }
+        });
+    }
+
+    private long reserve() {
+        return sequenceBlockAllocator.reserve(SEQUENCE_NAME, blockSize,
+                () -> contactMessageRepository.findMaxCaseSequence() + 1);
+    }
+
+    private static String format(long value) {
+        return String.format("CS-%04d", value);
+    }
+}
@@ -0,0 +1,115 @@
+package com.choose.service;
+
+import com.cloudinary.Cloudinary;
+import com.cloudinary.Transformation;
+import com.cloudinary.utils.ObjectUtils;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Cloudinary 圖片儲存：SDK 從磁碟串流上傳，縮圖（eager transformation）由 Cloudinary 非同步產生；
+ * 也支援瀏覽器以簽章參數直接上傳到 Cloudinary
+ */
+@Service
+@ConditionalOnProperty(name = "app.image-storage.type", havingValue = "cloudinary", matchIfMissing = true)
+@RequiredArgsConstructor
+public class CloudinaryImageStorage implements ImageStorage {
+
+    // 600px 列表縮圖與 1200px 大圖
+    private static final Transformation THUMBNAIL_TRANSFORM = new Transformation()
+            .width(600).crop("limit").quality("auto:best").fetchFormat("auto");
+    private static final Transformation LARGE_TRANSFORM = new Transformation()
+            .width(1200).crop("limit").quality("auto:good").fetchFormat("auto");
+
+    private static final String FOLDER = "chooseMVP/products";
+
+    private final Cloudinary cloudinary;
+
+    @Override
+    public StoredImage store(Path file, String contentType) throws IOException {
+        @SuppressWarnings("unchecked")
+        Map<String, Object> uploadResult = cloudinary.uploader().upload(
+                file.toFile(),
+                ObjectUtils.asMap(
+                        "folder", FOLDER,
+                        "resource_type", "image",
+                        "eager", Arrays.asList(THUMBNAIL_TRANSFORM, LARGE_TRANSFORM),
+                        "eager_async", true
+                )
+        );
+
+        // 縮圖尚未產生完成，但網址可由 public_id 與版本事先推算
+        String publicId = (String) uploadResult.get("public_id");
+        String format = (String) uploadResult.get("format");
+        Object version = uploadResult.get("version");
+        return new StoredImage(
+                (String) uploadResult.get("secure_url"),
+                derivativeUrl(publicId, format, version, THUMBNAIL_TRANSFORM),
+                derivativeUrl(publicId, format, version, LARGE_TRANSFORM));
+    }
+
+    /**
+     * 簽章涵蓋 timestamp、folder 與 eager 設定，瀏覽器無法改動；
+     * Cloudinary 端固定在 timestamp 後一小時內有效，validity 只能再縮短回傳給前端的期限
+     */
+    @Override
+    public DirectUploadTicket prepareDirectUpload(Duration validity) {
+        Instant now = Instant.now();
+        Map<String, Object> paramsToSign = new TreeMap<>();
+        paramsToSign.put("timestamp", String.valueOf(now.getEpochSecond()));
+        paramsToSign.put("folder", FOLDER);
+        paramsToSign.put("eager", THUMBNAIL_TRANSFORM.generate() + "|" + LARGE_TRANSFORM.generate());
+        paramsToSign.put("eager_async", "true");
+        String signature = cloudinary.apiSignRequest(paramsToSign, cloudinary.config.apiSecret);
+
+        Map<String, String> fields = new LinkedHashMap<>();
+        paramsToSign.forEach((key, value) -> fields.put(key, value.toString()));
+        fields.put("api_key", cloudinary.config.apiKey);
+        fields.put("signature", signature);
+
+        String uploadUrl = "https://api.cloudinary.com/v1_1/" + cloudinary.config.cloudName + "/image/upload";
+        return new DirectUploadTicket(uploadUrl, "file", fields, now.plus(validity));
+    }
+
+    /**
+     * 以 Cloudinary 回應中的 signature（public_id + version 的簽章）驗證上傳結果
+     */
+    @Override
+    public StoredImage verifyDirectUpload(Map<String, String> result) {
+        String publicId = result.get("public_id");
+        String version = result.get("version");
+        String signature = result.get("signature");
+        String format = result.get("format");
+        if (publicId == null || version == null || signature == null || format == null) {
+            throw new IllegalArgumentException("Incomplete upload result");
+        }
+        if (!publicId.startsWith(FOLDER + "/")
+                || !cloudinary.verifyApiResponseSignature(publicId, version, signature)) {
+            throw new IllegalArgumentException("Invalid upload signature");
+        }
+
+        String url = cloudinary.url().secure(true).version(version).format(format).generate(publicId);
+        return new StoredImage(url,
+                derivativeUrl(publicId, format, version, THUMBNAIL_TRANSFORM),
+                derivativeUrl(publicId, format, version, LARGE_TRANSFORM));
+    }
+
+    private String derivativeUrl(String publicId, String format, Object version, Transformation transformation) {
+        return cloudinary.url()
+                .secure(true)
+                .version(version)
+                .format(format)
+                .transformation(transformation)
+                .generate(publicId);
+    }
+}
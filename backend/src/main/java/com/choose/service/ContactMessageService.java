@@ -1,16 +1,31 @@
 package com.choose.service;
 
+import com.choose.dto.response.InquiryPageDTO;
+import com.choose.dto.response.InquirySearchResultDTO;
+import com.choose.dto.response.InquirySummaryDTO;
 import com.choose.model.ContactMessage;
+import com.choose.model.InquiryStatusCount;
 import com.choose.model.User;
 import com.choose.repository.ContactMessageRepository;
+import com.choose.repository.InquiryStatusCountRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -18,6 +33,21 @@ import java.util.Optional;
 public class ContactMessageService {
     private final ContactMessageRepository contactMessageRepository;
     private final EmailService emailService;
+    private final CaseNumberGenerator caseNumberGenerator;
+    private final InquiryStatusCountRepository inquiryStatusCountRepository;
+    private final InquirySuggestionService inquirySuggestionService;
+
+    private static final int MAX_PAGE_SIZE = 100;
+    // 第一頁的游標：比任何資料都新
+    private static final LocalDateTime FIRST_PAGE_CREATED_AT = LocalDateTime.of(9999, 12, 31, 23, 59, 59);
+    private static final Comparator<InquirySummaryDTO> NEWEST_FIRST = Comparator
+            .comparing(InquirySummaryDTO::getCreatedAt)
+            .thenComparing(InquirySummaryDTO::getId)
+            .reversed();
+    private static final Pattern CASE_NUMBER = Pattern.compile("(?i)CS-\\d+");
+    private static final Pattern EMAIL = Pattern.compile("[^\\s@]+@[^\\s@]+");
+    // BOOLEAN MODE 的運算子字元，使用者輸入的關鍵字一律視為字面文字
+    private static final Pattern FULLTEXT_OPERATORS = Pattern.compile("[+\\-<>()~*\"@]");
 
     public List<ContactMessage> getAllMessages() {
         return contactMessageRepository.findAllByOrderByCreatedAtDesc();
@@ -32,16 +62,129 @@ public class ContactMessageService {
     }
 
     /**
-     * 產生唯一案件編號 (CS-XXXX)
+     * 收件匣 keyset 分頁（由新到舊，不載入 TEXT 內容）
+     * 未指定狀態時，各狀態分別沿索引讀取一頁後合併，仍不需掃描或排序整張表
+     * @param cursor 上一頁回傳的 nextCursor；null 表示第一頁
+     */
+    public InquiryPageDTO getInquiryPage(ContactMessage.MessageStatus status, String cursor, int size) {
+        int pageSize = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+        LocalDateTime createdAt = FIRST_PAGE_CREATED_AT;
+        long messageId = Long.MAX_VALUE;
+        if (cursor != null && !cursor.isBlank()) {
+            int separator = cursor.lastIndexOf('_');
+            try {
+                createdAt = LocalDateTime.parse(cursor.substring(0, separator));
+                messageId = Long.parseLong(cursor.substring(separator + 1));
+            } catch (DateTimeParseException | NumberFormatException | IndexOutOfBoundsException e) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+        }
+
+        List<ContactMessage.MessageStatus> statuses = status != null
+                ? List.of(status)
+                : List.of(ContactMessage.MessageStatus.values());
+        // 多取一筆用來判斷是否還有下一頁
+        PageRequest limit = PageRequest.of(0, pageSize + 1);
+        List<InquirySummaryDTO> rows = new ArrayList<>();
+        for (ContactMessage.MessageStatus s : statuses) {
+            rows.addAll(contactMessageRepository.findSummaryPage(s, createdAt, messageId, limit));
+        }
+        if (statuses.size() > 1) {
+            rows.sort(NEWEST_FIRST);
+        }
+
+        if (rows.size() <= pageSize) {
+            return new InquiryPageDTO(rows, null);
+        }
+        List<InquirySummaryDTO> items = new ArrayList<>(rows.subList(0, pageSize));
+        InquirySummaryDTO last = items.get(items.size() - 1);
+        return new InquiryPageDTO(items, last.getCreatedAt() + "_" + last.getId());
+    }
+
+    /**
+     * 搜尋客服案件
+     * 案件編號與 Email 走唯一索引 / idx_email 精確比對；其他關鍵字查詢 ft_content 全文索引
+     * （ngram 斷詞，InnoDB 在 createMessage / replyMessage 的交易提交時即更新索引），
+     * 多個關鍵字需全部符合
      */
-    private String generateCaseNumber() {
-        long count = contactMessageRepository.count();
-        String caseNumber;
-        do {
-            count++;
-            caseNumber = String.format("CS-%04d", count);
-        } while (contactMessageRepository.existsByCaseNumber(caseNumber));
-        return caseNumber;
+    public InquirySearchResultDTO searchInquiries(String query, int page, int size) {
+        String q = query != null ? query.trim() : "";
+        if (q.isEmpty()) {
+            throw new IllegalArgumentException("Search query is required");
+        }
+        int pageSize = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+        int pageIndex = Math.max(page, 0);
+
+        if (CASE_NUMBER.matcher(q).matches()) {
+            List<InquirySummaryDTO> items = pageIndex == 0
+                    ? contactMessageRepository.findSummariesByCaseNumber(q.toUpperCase())
+                    : List.of();
+            return new InquirySearchResultDTO(items, pageIndex, false);
+        }
+
+        List<InquirySummaryDTO> rows;
+        if (EMAIL.matcher(q).matches()) {
+            rows = contactMessageRepository.findSummariesByEmail(q, PageRequest.of(pageIndex, pageSize + 1));
+        } else {
+            String booleanQuery = toBooleanQuery(q);
+            if (booleanQuery.isEmpty()) {
+                return new InquirySearchResultDTO(List.of(), pageIndex, false);
+            }
+            List<Long> ids = contactMessageRepository.searchFullTextIds(
+                    booleanQuery, pageSize + 1, (long) pageIndex * pageSize);
+            // 依全文檢索的相關度順序排列投影結果
+            Map<Long, InquirySummaryDTO> byId = ids.isEmpty() ? Map.of()
+                    : contactMessageRepository.findSummariesByIds(ids).stream()
+                            .collect(Collectors.toMap(InquirySummaryDTO::getId, Function.identity()));
+            rows = ids.stream().map(byId::get).filter(Objects::nonNull).toList();
+        }
+
+        boolean hasMore = rows.size() > pageSize;
+        List<InquirySummaryDTO> items = hasMore ? rows.subList(0, pageSize) : rows;
+        return new InquirySearchResultDTO(new ArrayList<>(items), pageIndex, hasMore);
+    }
+
+    /**
+     * 將使用者輸入轉為 BOOLEAN MODE 查詢：每個關鍵字以片語比對且必須出現
+     */
+    private static String toBooleanQuery(String query) {
+        StringBuilder builder = new StringBuilder();
+        for (String term : query.split("\\s+")) {
+            String literal = FULLTEXT_OPERATORS.matcher(term).replaceAll("");
+            if (!literal.isEmpty()) {
+                if (builder.length() > 0) {
+                    builder.append(' ');
+                }
+                builder.append("+\"").append(literal).append('"');
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * 各狀態案件數量（讀取增量維護的計數表，未出現的狀態為 0）
+     */
+    public Map<String, Long> getStatusCounts() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (ContactMessage.MessageStatus status : ContactMessage.MessageStatus.values()) {
+            counts.put(status.name(), 0L);
+        }
+        for (InquiryStatusCount count : inquiryStatusCountRepository.findAll()) {
+            counts.put(count.getStatus().name(), Math.max(0, count.getMessageCount()));
+        }
+        return counts;
+    }
+
+    private void moveStatusCount(ContactMessage.MessageStatus from, ContactMessage.MessageStatus to) {
+        if (from == to) {
+            return;
+        }
+        if (from != null) {
+            inquiryStatusCountRepository.addToCount(from.name(), -1);
+        }
+        if (to != null) {
+            inquiryStatusCountRepository.addToCount(to.name(), 1);
+        }
     }
 
     @Transactional
@@ -51,8 +194,10 @@ public class ContactMessageService {
         }
         message.setIpAddress(ipAddress);
         message.setStatus(ContactMessage.MessageStatus.PENDING);
-        message.setCaseNumber(generateCaseNumber());
-        return contactMessageRepository.save(message);
+        message.setCaseNumber(caseNumberGenerator.nextCaseNumber());
+        ContactMessage saved = contactMessageRepository.save(message);
+        moveStatusCount(null, ContactMessage.MessageStatus.PENDING);
+        return saved;
     }
 
     /**
@@ -62,24 +207,20 @@ public class ContactMessageService {
     public ContactMessage replyMessage(Long messageId, String replyContent, Long adminUserId) {
         log.info("Replying to inquiry: messageId={}, adminUserId={}", messageId, adminUserId);
         
-        ContactMessage message = contactMessageRepository.findById(messageId)
+        ContactMessage message = contactMessageRepository.findByIdForUpdate(messageId)
                 .orElseThrow(() -> new IllegalArgumentException("Message not found"));
         
+        moveStatusCount(message.getStatus(), ContactMessage.MessageStatus.REPLIED_TRACKING);
         message.setAdminReply(replyContent);
         message.setAdminReplyBy(adminUserId);
         message.setStatus(ContactMessage.MessageStatus.REPLIED_TRACKING);
         message.setRepliedAt(LocalDateTime.now());
         
         ContactMessage saved = contactMessageRepository.save(message);
+        inquirySuggestionService.indexInquiry(saved);
         
-        // 發送回覆 Email 給用戶
-        try {
-            emailService.sendInquiryReplyEmail(saved);
-            log.info("Reply email sent to: {}", saved.getEmail());
-        } catch (Exception e) {
-            log.error("Failed to send reply email to: {}", saved.getEmail(), e);
-            // Email 發送失敗不影響回覆功能
-        }
+        // 回覆 Email 與回覆內容同一交易寫入 outbox，由背景寄送（SMTP 失敗會自動重試）
+        emailService.sendInquiryReplyEmail(saved);
         
         return saved;
     }
@@ -91,13 +232,14 @@ public class ContactMessageService {
     public ContactMessage closeInquiry(Long messageId) {
         log.info("Closing inquiry: messageId={}", messageId);
         
-        ContactMessage message = contactMessageRepository.findById(messageId)
+        ContactMessage message = contactMessageRepository.findByIdForUpdate(messageId)
                 .orElseThrow(() -> new IllegalArgumentException("Message not found"));
         
         if (message.getStatus() != ContactMessage.MessageStatus.REPLIED_TRACKING) {
             throw new IllegalStateException("只有已回覆狀態可以結案");
         }
         
+        moveStatusCount(message.getStatus(), ContactMessage.MessageStatus.CLOSED);
         message.setStatus(ContactMessage.MessageStatus.CLOSED);
         return contactMessageRepository.save(message);
     }
@@ -109,22 +251,24 @@ public class ContactMessageService {
     public ContactMessage reopenInquiry(Long messageId) {
         log.info("Reopening inquiry: messageId={}", messageId);
         
-        ContactMessage message = contactMessageRepository.findById(messageId)
+        ContactMessage message = contactMessageRepository.findByIdForUpdate(messageId)
                 .orElseThrow(() -> new IllegalArgumentException("Message not found"));
         
         if (message.getStatus() != ContactMessage.MessageStatus.CLOSED) {
             throw new IllegalStateException("只有已結案狀態可以重開");
         }
         
+        moveStatusCount(message.getStatus(), ContactMessage.MessageStatus.REPLIED_TRACKING);
         message.setStatus(ContactMessage.MessageStatus.REPLIED_TRACKING);
         return contactMessageRepository.save(message);
     }
 
     @Transactional
     public void deleteMessage(Long messageId) {
-        if (!contactMessageRepository.existsById(messageId)) {
-            throw new IllegalArgumentException("Message not found");
-        }
-        contactMessageRepository.deleteById(messageId);
+        ContactMessage message = contactMessageRepository.findByIdForUpdate(messageId)
+                .orElseThrow(() -> new IllegalArgumentException("Message not found"));
+        moveStatusCount(message.getStatus(), null);
+        contactMessageRepository.delete(message);
+        inquirySuggestionService.removeInquiry(messageId);
     }
 }
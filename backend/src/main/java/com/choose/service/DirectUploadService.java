@@ -0,0 +1,40 @@
+package com.choose.service;
+
+import com.choose.model.Product;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * 瀏覽器直傳圖片：簽發短效上傳參數，上傳完成後驗證儲存端回應再掛到商品上
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DirectUploadService {
+
+    private final ImageStorage imageStorage;
+    private final ImageAssetService imageAssetService;
+    private final ProductService productService;
+
+    @Value("${app.upload.direct.validity-seconds:600}")
+    private long validitySeconds;
+
+    public ImageStorage.DirectUploadTicket createTicket() {
+        return imageStorage.prepareDirectUpload(Duration.ofSeconds(validitySeconds));
+    }
+
+    /**
+     * @param color 為空時設為主圖，否則加入該顏色的圖片
+     */
+    public Product confirm(Long productId, String color, Map<String, String> result) {
+        ImageStorage.StoredImage stored = imageStorage.verifyDirectUpload(result);
+        Product product = productService.attachImage(productId, color, stored.url(), imageAssetService.srcsetFor(stored));
+        log.info("Direct upload confirmed: productId={}, url={}", productId, stored.url());
+        return product;
+    }
+}
@@ -1,254 +1,93 @@
 package com.choose.service;
 
+import com.choose.model.ContactMessage;
 import com.choose.model.User;
 import com.choose.model.VerificationToken;
-import com.choose.repository.VerificationTokenRepository;
+import com.choose.service.MailTemplateService.MailTemplate;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.mail.SimpleMailMessage;
-import org.springframework.mail.javamail.JavaMailSender;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.time.LocalDateTime;
-import java.util.Optional;
-import java.util.UUID;
+import java.time.Duration;
+import java.util.Map;
 
+/**
+ * 以預先編譯的模板組成郵件並寫入 mail_outbox，實際寄送由 MailDispatcher 在背景處理
+ */
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class EmailService {
     
-    private final JavaMailSender mailSender;
-    private final VerificationTokenRepository tokenRepository;
+    private final MailOutboxService mailOutboxService;
+    private final MailTemplateService mailTemplateService;
+    private final EmailTokenService emailTokenService;
     
     @Value("${app.frontend-url:https://choose.zeabur.app}")
     private String frontendUrl;
     
-    @Value("${spring.mail.username:noreply@choose.com}")
-    private String fromEmail;
-    
-    private static final int EMAIL_VERIFY_EXPIRY_HOURS = 24;
-    private static final int PASSWORD_RESET_EXPIRY_HOURS = 1;
-    
-    /**
-     * 產生驗證 Token
-     */
-    private String generateToken() {
-        return UUID.randomUUID().toString();
-    }
+    private static final Duration EMAIL_VERIFY_EXPIRY = Duration.ofHours(24);
+    private static final Duration PASSWORD_RESET_EXPIRY = Duration.ofHours(1);
+    private static final Duration LOGIN_LINK_EXPIRY = Duration.ofMinutes(15);
     
     /**
-     * 發送信箱驗證郵件（同步處理 Token + 異步發送郵件）
+     * 發送信箱驗證郵件（簽章 Token + 寫入 outbox）
      */
     @Transactional
     public void sendVerificationEmail(User user) {
         log.info("Preparing verification email for: {}", user.getEmail());
         
-        // 刪除舊的驗證 token
-        tokenRepository.deleteByUserUserId(user.getUserId());
-        
-        // 建立新 token
-        String token = generateToken();
-        VerificationToken verificationToken = new VerificationToken();
-        verificationToken.setToken(token);
-        verificationToken.setUser(user);
-        verificationToken.setType(VerificationToken.TokenType.EMAIL_VERIFY);
-        verificationToken.setExpiresAt(LocalDateTime.now().plusHours(EMAIL_VERIFY_EXPIRY_HOURS));
-        tokenRepository.save(verificationToken);
-        
-        // 異步發送郵件
+        String token = emailTokenService.issue(user, VerificationToken.TokenType.EMAIL_VERIFY, EMAIL_VERIFY_EXPIRY);
         String verifyUrl = frontendUrl + "/verify-email?token=" + token;
-        sendVerificationEmailAsync(user.getEmail(), user.getName(), verifyUrl);
-    }
-    
-    /**
-     * 異步發送驗證郵件（僅 I/O，不涉及資料庫）
-     */
-    @Async
-    public void sendVerificationEmailAsync(String email, String name, String verifyUrl) {
-        try {
-            SimpleMailMessage message = new SimpleMailMessage();
-            message.setTo(email);
-            message.setSubject("[Choose] 請驗證您的信箱");
-            message.setText(
-                "親愛的 " + name + "，\n\n" +
-                "感謝您註冊 Choose！\n\n" +
-                "請點擊以下連結驗證您的信箱：\n" +
-                verifyUrl + "\n\n" +
-                "此連結將在 24 小時後失效。\n\n" +
-                "如果您沒有註冊 Choose，請忽略此信件。\n\n" +
-                "Choose 團隊"
-            );
-            
-            mailSender.send(message);
-            log.info("Verification email sent successfully to: {}", email);
-        } catch (Exception e) {
-            log.error("Failed to send verification email to {}: {}", email, e.getMessage());
-        }
+        enqueue(user.getEmail(), MailTemplate.EMAIL_VERIFY, Map.of("name", user.getName(), "url", verifyUrl));
     }
     
     /**
-     * 發送密碼重設郵件（同步處理 Token + 異步發送郵件）
+     * 發送密碼重設郵件（簽章 Token + 寫入 outbox）
      */
     @Transactional
     public void sendPasswordResetEmail(User user) {
         log.info("Preparing password reset email for: {}", user.getEmail());
         
-        // 刪除舊的重設 token
-        Optional<VerificationToken> existingToken = tokenRepository
-                .findByUserUserIdAndType(user.getUserId(), VerificationToken.TokenType.PASSWORD_RESET);
-        existingToken.ifPresent(tokenRepository::delete);
-        
-        // 建立新 token
-        String token = generateToken();
-        VerificationToken resetToken = new VerificationToken();
-        resetToken.setToken(token);
-        resetToken.setUser(user);
-        resetToken.setType(VerificationToken.TokenType.PASSWORD_RESET);
-        resetToken.setExpiresAt(LocalDateTime.now().plusHours(PASSWORD_RESET_EXPIRY_HOURS));
-        tokenRepository.save(resetToken);
-        
-        // 異步發送郵件
+        String token = emailTokenService.issue(user, VerificationToken.TokenType.PASSWORD_RESET, PASSWORD_RESET_EXPIRY);
         String resetUrl = frontendUrl + "/reset-password?token=" + token;
-        sendPasswordResetEmailAsync(user.getEmail(), user.getName(), resetUrl);
-    }
-    
-    /**
-     * 異步發送密碼重設郵件（僅 I/O）
-     */
-    @Async
-    public void sendPasswordResetEmailAsync(String email, String name, String resetUrl) {
-        try {
-            SimpleMailMessage message = new SimpleMailMessage();
-            message.setTo(email);
-            message.setSubject("[Choose] 重設密碼");
-            message.setText(
-                "親愛的 " + name + "，\n\n" +
-                "我們收到了您重設密碼的請求。\n\n" +
-                "請點擊以下連結重設您的密碼：\n" +
-                resetUrl + "\n\n" +
-                "此連結將在 1 小時後失效。\n\n" +
-                "如果您沒有請求重設密碼，請忽略此信件，您的帳號密碼不會被更改。\n\n" +
-                "Choose 團隊"
-            );
-            
-            mailSender.send(message);
-            log.info("Password reset email sent successfully to: {}", email);
-        } catch (Exception e) {
-            log.error("Failed to send password reset email to {}: {}", email, e.getMessage());
-        }
+        enqueue(user.getEmail(), MailTemplate.PASSWORD_RESET, Map.of("name", user.getName(), "url", resetUrl));
     }
 
     /**
-     * 發送 Magic Link 登入郵件（同步處理 Token + 異步發送郵件）
+     * 發送 Magic Link 登入郵件（簽章 Token + 寫入 outbox）
      */
     @Transactional
     public void sendLoginLinkEmail(User user) {
         log.info("Preparing login link email for: {}", user.getEmail());
         
-        // 刪除舊的登入 token
-        Optional<VerificationToken> existingToken = tokenRepository
-                .findByUserUserIdAndType(user.getUserId(), VerificationToken.TokenType.LOGIN_LINK);
-        existingToken.ifPresent(tokenRepository::delete);
-        
-        // 建立新 token（15 分鐘有效）
-        String token = generateToken();
-        VerificationToken loginToken = new VerificationToken();
-        loginToken.setToken(token);
-        loginToken.setUser(user);
-        loginToken.setType(VerificationToken.TokenType.LOGIN_LINK);
-        loginToken.setExpiresAt(LocalDateTime.now().plusMinutes(15));
-        tokenRepository.save(loginToken);
-        
-        // 異步發送郵件
+        // 15 分鐘有效
+        String token = emailTokenService.issue(user, VerificationToken.TokenType.LOGIN_LINK, LOGIN_LINK_EXPIRY);
         String loginUrl = frontendUrl + "/login-verify?token=" + token;
-        sendLoginLinkEmailAsync(user.getEmail(), user.getName(), loginUrl);
-    }
-    
-    /**
-     * 異步發送 Magic Link 登入郵件（僅 I/O）
-     */
-    @Async
-    public void sendLoginLinkEmailAsync(String email, String name, String loginUrl) {
-        try {
-            SimpleMailMessage message = new SimpleMailMessage();
-            message.setTo(email);
-            message.setSubject("[Choose] 登入驗證連結");
-            message.setText(
-                "親愛的 " + name + "，\n\n" +
-                "您已請求使用信箱驗證登入。\n\n" +
-                "請點擊以下連結登入：\n" +
-                loginUrl + "\n\n" +
-                "此連結將在 15 分鐘後失效。\n\n" +
-                "如果您沒有請求登入，請忽略此信件。\n\n" +
-                "Choose 團隊"
-            );
-            
-            mailSender.send(message);
-            log.info("Login link email sent successfully to: {}", email);
-        } catch (Exception e) {
-            log.error("Failed to send login link email to {}: {}", email, e.getMessage());
-        }
-    }
-    
-    /**
-     * 驗證 Token
-     */
-    public Optional<VerificationToken> validateToken(String token) {
-        return tokenRepository.findByToken(token)
-                .filter(t -> !t.isExpired());
+        enqueue(user.getEmail(), MailTemplate.LOGIN_LINK, Map.of("name", user.getName(), "url", loginUrl));
     }
     
     /**
-     * 刪除 Token
+     * 發送客服回覆郵件給用戶（與回覆內容同一交易寫入 outbox）
      */
     @Transactional
-    public void deleteToken(VerificationToken token) {
-        tokenRepository.delete(token);
-    }
-    
-    /**
-     * 清除過期 Token（可定期執行）
-     */
-    @Transactional
-    public void cleanupExpiredTokens() {
-        tokenRepository.deleteExpiredTokens(LocalDateTime.now());
-        log.info("Expired tokens cleaned up");
+    public void sendInquiryReplyEmail(ContactMessage inquiry) {
+        log.info("Queueing inquiry reply email to: {}", inquiry.getEmail());
+        
+        String subjectLine = inquiry.getSubject() != null 
+            ? "【主題】" + inquiry.getSubject() + "\n\n"
+            : "";
+        enqueue(inquiry.getEmail(), MailTemplate.INQUIRY_REPLY, Map.of(
+                "name", inquiry.getName(),
+                "subjectLine", subjectLine,
+                "question", inquiry.getMessage(),
+                "reply", inquiry.getAdminReply()));
     }
 
-    /**
-     * 發送客服回覆郵件給用戶（異步）
-     */
-    @Async
-    public void sendInquiryReplyEmail(com.choose.model.ContactMessage inquiry) {
-        try {
-            log.info("Sending inquiry reply email to: {}", inquiry.getEmail());
-            
-            SimpleMailMessage message = new SimpleMailMessage();
-            message.setTo(inquiry.getEmail());
-            message.setSubject("[Choose] 您的詢問已回覆");
-            
-            String subjectLine = inquiry.getSubject() != null 
-                ? "【主題】" + inquiry.getSubject() + "\n\n"
-                : "";
-            
-            message.setText(
-                "親愛的 " + inquiry.getName() + "，\n\n" +
-                "感謝您的來信，以下是您的詢問與我們的回覆：\n\n" +
-                subjectLine +
-                "【您的問題】\n" + inquiry.getMessage() + "\n\n" +
-                "【客服回覆】\n" + inquiry.getAdminReply() + "\n\n" +
-                "如有任何疑問，歡迎再次與我們聯繫。\n\n" +
-                "Choose 團隊"
-            );
-            
-            mailSender.send(message);
-            log.info("Inquiry reply email sent successfully to: {}", inquiry.getEmail());
-        } catch (Exception e) {
-            log.error("Failed to send inquiry reply email to {}: {}", inquiry.getEmail(), e.getMessage());
-        }
+    private void enqueue(String recipient, MailTemplate template, Map<String, ?> values) {
+        MailTemplateService.RenderedMail mail = mailTemplateService.render(template, values);
+        mailOutboxService.enqueue(recipient, mail.subject(), mail.text(), mail.html(), template.name());
     }
 }
@@ -0,0 +1,170 @@
+package com.choose.service;
+
+import com.choose.model.User;
+import com.choose.model.VerificationToken;
+import com.choose.repository.TokenNonceRepository;
+import com.choose.repository.VerificationTokenRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * 信箱驗證 / 重設密碼 / Magic Link 使用的簽章 token
+ * 格式：base64url(userId|type|exp|nonce) + "." + base64url(HMAC-SHA256)
+ * 簽發不寫資料庫；使用時以 token_nonces 的條件式更新確保只能使用一次
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class EmailTokenService {
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final TokenNonceRepository tokenNonceRepository;
+    private final VerificationTokenRepository verificationTokenRepository;
+
+    @Value("${app.email-token.secret:${jwt.secret:chooseMVPSecretKey12345678901234567890}}")
+    private String secret;
+
+    private SecretKeySpec signingKey;
+
+    @PostConstruct
+    void init() {
+        // 與 JWT 共用密鑰時加上用途前綴，兩種簽章不能互換
+        signingKey = new SecretKeySpec(("email-token:" + secret).getBytes(StandardCharsets.UTF_8), HMAC_ALGORITHM);
+    }
+
+    /**
+     * 簽發 token；同一使用者同類型在下一次使用前簽發的 token 共用 nonce，任一被使用後全部失效
+     */
+    public String issue(User user, VerificationToken.TokenType type, Duration validity) {
+        long nonce = tokenNonceRepository.findNonce(user.getUserId(), type.name()).orElse(0L);
+        long expiresAt = Instant.now().plus(validity).getEpochSecond();
+        String payload = user.getUserId() + "|" + type.name() + "|" + expiresAt + "|" + nonce;
+        String encodedPayload = ENCODER.encodeToString(payload.getBytes(StandardCharsets.UTF_8));
+        return encodedPayload + "." + ENCODER.encodeToString(sign(encodedPayload));
+    }
+
+    /**
+     * 驗證並使用 token，成功時回傳 userId
+     */
+    public Optional<Long> consume(String token, VerificationToken.TokenType type) {
+        return consume(token, type, null);
+    }
+
+    /**
+     * 驗證並使用 token；expectedUserId 不為 null 時 token 必須屬於該使用者
+     */
+    public Optional<Long> consume(String token, VerificationToken.TokenType type, Long expectedUserId) {
+        if (token == null || token.isBlank()) {
+            return Optional.empty();
+        }
+        if (token.indexOf('.') < 0) {
+            return consumeLegacy(token, type, expectedUserId);
+        }
+        return parse(token, type, expectedUserId).filter(signed -> {
+            int consumed = signed.nonce() == 0
+                    ? tokenNonceRepository.consumeFirst(signed.userId(), type.name())
+                    : tokenNonceRepository.consume(signed.userId(), type.name(), signed.nonce());
+            if (consumed == 0) {
+                log.warn("Signed token already used: userId={}, type={}", signed.userId(), type);
+                return false;
+            }
+            return true;
+        }).map(SignedToken::userId);
+    }
+
+    /**
+     * 只檢查 token 目前是否可用，不使用；用於在耗時步驟（例如密碼雜湊）前先排除無效連結，
+     * 實際使用仍須呼叫 consume
+     */
+    public boolean isUsable(String token, VerificationToken.TokenType type, Long expectedUserId) {
+        if (token == null || token.isBlank()) {
+            return false;
+        }
+        if (token.indexOf('.') < 0) {
+            return verificationTokenRepository.findByToken(token)
+                    .filter(t -> t.getType() == type && !t.isExpired())
+                    .filter(t -> expectedUserId == null || Objects.equals(t.getUser().getUserId(), expectedUserId))
+                    .isPresent();
+        }
+        return parse(token, type, expectedUserId)
+                .filter(signed -> tokenNonceRepository.findNonce(signed.userId(), type.name()).orElse(0L) == signed.nonce())
+                .isPresent();
+    }
+
+    /**
+     * 檢查簽章、類型、期限與使用者，不讀寫資料庫
+     */
+    private Optional<SignedToken> parse(String token, VerificationToken.TokenType type, Long expectedUserId) {
+        String[] parts = token.split("\\.", 2);
+        byte[] signature;
+        String[] fields;
+        try {
+            signature = DECODER.decode(parts[1]);
+            fields = new String(DECODER.decode(parts[0]), StandardCharsets.UTF_8).split("\\|");
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+        if (!MessageDigest.isEqual(sign(parts[0]), signature) || fields.length != 4) {
+            log.warn("Signed token rejected: invalid signature or format");
+            return Optional.empty();
+        }
+
+        long userId;
+        long expiresAt;
+        long nonce;
+        try {
+            userId = Long.parseLong(fields[0]);
+            expiresAt = Long.parseLong(fields[2]);
+            nonce = Long.parseLong(fields[3]);
+        } catch (NumberFormatException e) {
+            return Optional.empty();
+        }
+        if (!type.name().equals(fields[1])
+                || Instant.now().getEpochSecond() > expiresAt
+                || (expectedUserId != null && expectedUserId != userId)) {
+            return Optional.empty();
+        }
+        return Optional.of(new SignedToken(userId, nonce));
+    }
+
+    /**
+     * 升級前寄出的 UUID token 仍存在 verification_tokens，到期前沿用舊流程
+     */
+    private Optional<Long> consumeLegacy(String token, VerificationToken.TokenType type, Long expectedUserId) {
+        return verificationTokenRepository.findByToken(token)
+                .filter(t -> t.getType() == type && !t.isExpired())
+                .filter(t -> expectedUserId == null || Objects.equals(t.getUser().getUserId(), expectedUserId))
+                .filter(t -> verificationTokenRepository.deleteTokenById(t.getId()) > 0)
+                .map(t -> t.getUser().getUserId());
+    }
+
+    private byte[] sign(String encodedPayload) {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(signingKey);
+            return mac.doFinal(encodedPayload.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC-SHA256 not available", e);
+        }
+    }
+
+    private record SignedToken(long userId, long nonce) {
+    }
+}
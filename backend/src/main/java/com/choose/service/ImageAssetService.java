@@ -0,0 +1,339 @@
+package com.choose.service;
+
+import com.choose.common.ContentHash;
+import com.choose.model.ImageAsset;
+import com.choose.repository.ImageAssetRepository;
+import com.choose.repository.ProductRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Iterator;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 圖片資產：以內容雜湊去重，相同檔案只儲存與轉檔一次；
+ * 儲存後端未提供縮圖時（本機儲存），在有上限的執行緒池以 ImageIO 產生 600px / 1200px 衍生圖，
+ * 完成後回寫到使用該圖片的商品（ProductDTO.imageSrcset）
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ImageAssetService {
+
+    private static final int THUMBNAIL_WIDTH = 600;
+    private static final int LARGE_WIDTH = 1200;
+
+    private final ImageStorage imageStorage;
+    private final ImageAssetRepository imageAssetRepository;
+    private final ProductRepository productRepository;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.image-derivatives.pool-size:2}")
+    private int poolSize;
+
+    @Value("${app.image-derivatives.queue-capacity:64}")
+    private int queueCapacity;
+
+    @Value("${app.image-derivatives.jpeg-quality:0.85}")
+    private float jpegQuality;
+
+    // 解碼前先讀取尺寸，像素數超過上限的圖片不轉檔（避免高壓縮比的小檔案解碼後耗盡記憶體）
+    @Value("${app.image-derivatives.max-pixels:25000000}")
+    private long maxPixels;
+
+    // 轉檔租約長度，須大於單張圖片轉檔與上傳所需時間
+    @Value("${app.image-derivatives.claim-seconds:600}")
+    private long claimSeconds;
+
+    @Value("${app.upload.temp-dir:${java.io.tmpdir}/choose-uploads}")
+    private Path tempDir;
+
+    private ThreadPoolExecutor rawExecutor;
+    private ExecutorService executor;
+    private Counter dedupeHits;
+
+    @PostConstruct
+    void init() {
+        AtomicInteger threadCount = new AtomicInteger();
+        rawExecutor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread thread = new Thread(r, "image-derivative-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        executor = ExecutorServiceMetrics.monitor(meterRegistry, rawExecutor, "image.derivatives");
+        dedupeHits = Counter.builder("image.assets.dedupe.hits")
+                .description("Uploads served from an existing image asset with identical content")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        rawExecutor.shutdown();
+    }
+
+    /**
+     * 儲存圖片（內容相同時直接回傳既有網址）；呼叫端負責刪除暫存檔
+     */
+    public ImageStorage.StoredImage register(Path file, String contentType) throws IOException {
+        String hash = ContentHash.sha256(file);
+        Optional<ImageAsset> existing = imageAssetRepository.findByContentHash(hash);
+        if (existing.isPresent()) {
+            ImageAsset asset = existing.get();
+            dedupeHits.increment();
+            log.info("Image deduplicated: assetId={}, hash={}", asset.getAssetId(), hash);
+            // 先前轉檔失敗，或因重啟而停在 PROCESSING 的資產，以這次上傳的檔案重新轉檔；
+            // 以資料庫租約確保所有節點中只有一個會重新轉檔
+            if (asset.getStatus() == ImageAsset.Status.FAILED || asset.getStatus() == ImageAsset.Status.PROCESSING) {
+                LocalDateTime now = LocalDateTime.now();
+                if (imageAssetRepository.claimForDerivatives(asset.getAssetId(), now, now.plusSeconds(claimSeconds)) > 0) {
+                    log.info("Requeueing image derivatives: assetId={}, status={}", asset.getAssetId(), asset.getStatus());
+                    scheduleDerivatives(asset.getAssetId(), file);
+                }
+            }
+            return toStoredImage(asset);
+        }
+
+        ImageStorage.StoredImage stored = imageStorage.store(file, contentType);
+
+        ImageAsset asset = new ImageAsset();
+        asset.setContentHash(hash);
+        asset.setContentType(contentType);
+        asset.setSizeBytes(Files.size(file));
+        asset.setUrl(stored.url());
+        asset.setUrl600(stored.thumbnailUrl());
+        asset.setUrl1200(stored.largeUrl());
+        // 儲存後端已提供縮圖（Cloudinary eager transformation）就不需要本機轉檔；需要時由登記的節點持有轉檔租約
+        if (stored.thumbnailUrl() != null) {
+            asset.setStatus(ImageAsset.Status.READY);
+        } else {
+            asset.setStatus(ImageAsset.Status.PROCESSING);
+            asset.setClaimedUntil(LocalDateTime.now().plusSeconds(claimSeconds));
+        }
+        try {
+            asset = imageAssetRepository.save(asset);
+        } catch (DataIntegrityViolationException e) {
+            // 同內容的圖片剛好被另一個請求登記
+            return imageAssetRepository.findByContentHash(hash).map(this::toStoredImage).orElse(stored);
+        }
+
+        if (asset.getStatus() == ImageAsset.Status.PROCESSING) {
+            scheduleDerivatives(asset.getAssetId(), file);
+        }
+        return stored;
+    }
+
+    /**
+     * 商品主圖對應的 srcset（衍生圖尚未完成時為 null，完成後會回寫）
+     */
+    public String srcsetForUrl(String url) {
+        if (url == null || url.isBlank()) {
+            return null;
+        }
+        return imageAssetRepository.findFirstByUrl(url).map(this::srcset).orElse(null);
+    }
+
+    /**
+     * 儲存端已提供縮圖時直接組出 srcset，否則依網址查詢資產紀錄
+     */
+    public String srcsetFor(ImageStorage.StoredImage stored) {
+        if (stored.thumbnailUrl() != null || stored.largeUrl() != null) {
+            return srcset(stored.thumbnailUrl(), stored.largeUrl(), null);
+        }
+        return srcsetForUrl(stored.url());
+    }
+
+    /**
+     * 複製一份工作檔交給背景執行緒（原暫存檔由上傳流程刪除）；呼叫端須已取得轉檔租約
+     */
+    private void scheduleDerivatives(Long assetId, Path file) throws IOException {
+        Path workFile = Files.createTempFile(tempDir, "derivative-", ".tmp");
+        Files.copy(file, workFile, StandardCopyOption.REPLACE_EXISTING);
+        try {
+            executor.execute(() -> generateDerivatives(assetId, workFile));
+        } catch (RejectedExecutionException e) {
+            Files.deleteIfExists(workFile);
+            imageAssetRepository.findById(assetId).ifPresent(asset -> finish(asset, ImageAsset.Status.FAILED));
+            log.warn("Image derivatives skipped: executor saturated, assetId={}", assetId);
+        }
+    }
+
+    // 轉檔結束時一併釋放租約
+    private void finish(ImageAsset asset, ImageAsset.Status status) {
+        asset.setStatus(status);
+        asset.setClaimedUntil(null);
+        imageAssetRepository.save(asset);
+    }
+
+    private void generateDerivatives(Long assetId, Path workFile) {
+        ImageAsset asset = imageAssetRepository.findById(assetId).orElse(null);
+        try {
+            if (asset == null) {
+                return;
+            }
+            BufferedImage source = decode(workFile, assetId);
+            if (source == null) {
+                // ImageIO 不支援的格式（例如 webp）或尺寸過大，只使用原圖
+                finish(asset, ImageAsset.Status.UNSUPPORTED);
+                log.info("Image derivatives skipped: assetId={}, contentType={}", assetId, asset.getContentType());
+                return;
+            }
+
+            asset.setWidth(source.getWidth());
+            asset.setUrl600(derivative(source, THUMBNAIL_WIDTH, asset.getUrl()));
+            asset.setUrl1200(derivative(source, LARGE_WIDTH, asset.getUrl()));
+            finish(asset, ImageAsset.Status.READY);
+
+            int products = productRepository.updateImageSrcset(asset.getUrl(), srcset(asset));
+            log.info("Image derivatives ready: assetId={}, width={}, products={}", assetId, source.getWidth(), products);
+        } catch (Exception e) {
+            log.error("Image derivatives failed: assetId={}", assetId, e);
+            if (asset != null) {
+                finish(asset, ImageAsset.Status.FAILED);
+            }
+        } finally {
+            try {
+                Files.deleteIfExists(workFile);
+            } catch (IOException e) {
+                log.warn("Failed to delete derivative work file: {}", workFile, e);
+            }
+        }
+    }
+
+    /**
+     * 先由 ImageReader 讀取標頭中的寬高，確認像素數在上限內才解碼
+     * @return 解碼後的圖片；格式不支援或尺寸過大時回傳 null
+     */
+    private BufferedImage decode(Path file, Long assetId) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(file.toFile())) {
+            Iterator<ImageReader> readers = in != null ? ImageIO.getImageReaders(in) : null;
+            if (readers == null || !readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                long pixels = (long) reader.getWidth(0) * reader.getHeight(0);
+                if (pixels > maxPixels) {
+                    log.warn("Image too large for derivatives: assetId={}, width={}, height={}",
+                            assetId, reader.getWidth(0), reader.getHeight(0));
+                    return null;
+                }
+                return reader.read(0);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * 等比例縮到指定寬度並以 JPEG 儲存；原圖不夠寬時直接使用原圖（不放大）
+     */
+    private String derivative(BufferedImage source, int width, String originalUrl) throws IOException {
+        if (source.getWidth() <= width) {
+            return originalUrl;
+        }
+        int height = Math.max(1, Math.round((float) source.getHeight() * width / source.getWidth()));
+        BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = scaled.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            // 透明背景（PNG / GIF）轉成白底
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, width, height);
+            g.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            g.dispose();
+        }
+
+        Path output = Files.createTempFile(tempDir, "derivative-" + width + "-", ".jpg");
+        try {
+            writeJpeg(scaled, output);
+            return imageStorage.store(output, "image/jpeg").url();
+        } finally {
+            Files.deleteIfExists(output);
+        }
+    }
+
+    private void writeJpeg(BufferedImage image, Path output) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(output.toFile())) {
+            writer.setOutput(out);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(jpegQuality);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    private ImageStorage.StoredImage toStoredImage(ImageAsset asset) {
+        return new ImageStorage.StoredImage(asset.getUrl(), asset.getUrl600(), asset.getUrl1200());
+    }
+
+    private String srcset(ImageAsset asset) {
+        return srcset(asset.getUrl600(), asset.getUrl1200(), asset.getWidth());
+    }
+
+    /**
+     * 組出 srcset；原圖比衍生圖窄時以實際寬度描述，重複的網址只列一次
+     */
+    private static String srcset(String url600, String url1200, Integer sourceWidth) {
+        if (url600 == null && url1200 == null) {
+            return null;
+        }
+        Map<String, Integer> candidates = new LinkedHashMap<>();
+        if (url600 != null) {
+            candidates.putIfAbsent(url600, describedWidth(sourceWidth, THUMBNAIL_WIDTH));
+        }
+        if (url1200 != null) {
+            candidates.putIfAbsent(url1200, describedWidth(sourceWidth, LARGE_WIDTH));
+        }
+        List<String> entries = new ArrayList<>();
+        candidates.forEach((url, width) -> entries.add(url + " " + width + "w"));
+        return String.join(", ", entries);
+    }
+
+    private static int describedWidth(Integer sourceWidth, int targetWidth) {
+        return sourceWidth != null ? Math.min(sourceWidth, targetWidth) : targetWidth;
+    }
+}
@@ -0,0 +1,46 @@
+package com.choose.service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * 圖片儲存後端（Cloudinary 或本機磁碟，由 app.image-storage.type 決定）
+ */
+public interface ImageStorage {
+
+    /**
+     * 儲存已寫入暫存檔的圖片；呼叫端負責刪除暫存檔
+     *
+     * @param file        暫存檔
+     * @param contentType 已驗證過的圖片 MIME type
+     * @return 原圖與縮圖網址（後端不產生縮圖時縮圖網址為 null）
+     */
+    StoredImage store(Path file, String contentType) throws IOException;
+
+    /**
+     * 簽發瀏覽器直傳用的短效上傳參數（圖片不經過 API 節點）
+     */
+    DirectUploadTicket prepareDirectUpload(Duration validity);
+
+    /**
+     * 驗證直傳完成後儲存端回傳的結果，確認不是偽造的網址
+     *
+     * @param result 儲存端上傳回應的欄位
+     * @throws IllegalArgumentException 簽章不符或結果不完整
+     */
+    StoredImage verifyDirectUpload(Map<String, String> result);
+
+    record StoredImage(String url, String thumbnailUrl, String largeUrl) {
+    }
+
+    /**
+     * @param uploadUrl 瀏覽器以 multipart/form-data POST 的網址
+     * @param fileField 檔案欄位名稱
+     * @param fields    需一併送出的欄位（含簽章）
+     */
+    record DirectUploadTicket(String uploadUrl, String fileField, Map<String, String> fields, Instant expiresAt) {
+    }
+}
@@ -1,38 +1,319 @@
 package com.choose.service;
 
-import com.cloudinary.Cloudinary;
-import com.cloudinary.utils.ObjectUtils;
+import com.choose.common.ServiceBusyException;
+import com.choose.model.ImageUploadJob;
+import com.choose.repository.ImageUploadJobRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
-import java.util.Arrays;
+import java.net.InetAddress;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * 圖片上傳服務
- * 處理圖片上傳至 Cloudinary
+ * 驗證圖片並交給 ImageAssetService 去重與儲存；檔案一律經由磁碟暫存檔串流處理，不在 heap 上保留整個檔案
+ * 非同步上傳的工作紀錄過期後定期清除
  */
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class ImageUploadService {
 
-    private final Cloudinary cloudinary;
+    private static final long MAX_FILE_SIZE = 5 * 1024 * 1024; // 5MB
+    private static final long RETRY_AFTER_SECONDS = 5;
+    private static final int MAX_ERROR_LENGTH = 500;
+    private static final String CLEANUP_LEASE_NAME = "upload-job-cleanup";
+
+    private final ImageAssetService imageAssetService;
+    private final ImageUploadJobRepository imageUploadJobRepository;
+    private final SchedulerLeaseService schedulerLeaseService;
+    private final BatchPurger batchPurger;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.upload.pool-size:4}")
+    private int poolSize;
+
+    @Value("${app.upload.queue-capacity:32}")
+    private int queueCapacity;
+
+    @Value("${app.upload.temp-dir:${java.io.tmpdir}/choose-uploads}")
+    private Path tempDir;
+
+    @Value("${app.upload.job-ttl-hours:24}")
+    private long jobTtlHours;
+
+    @Value("${app.upload.max-files-per-request:10}")
+    private int maxFilesPerRequest;
+
+    @Value("${app.upload.batch-timeout-seconds:60}")
+    private long batchTimeoutSeconds;
+
+    // 須在重啟後保持不變（暫存目錄屬於這個節點）；未設定時使用主機名稱
+    @Value("${app.upload.node-id:}")
+    private String nodeId;
+
+    @Value("${app.cleanup.lease-seconds:600}")
+    private long cleanupLeaseSeconds;
+
+    private ThreadPoolExecutor rawExecutor;
+    private ExecutorService executor;
+
+    @PostConstruct
+    void init() throws IOException {
+        if (nodeId.isBlank()) {
+            nodeId = InetAddress.getLocalHost().getHostName();
+        }
+        Files.createDirectories(tempDir);
+        // 上次停機時尚未處理完的暫存檔
+        try (DirectoryStream<Path> leftovers = Files.newDirectoryStream(tempDir)) {
+            for (Path leftover : leftovers) {
+                Files.deleteIfExists(leftover);
+            }
+        }
+        // 本節點對應的工作改為失敗，讓查詢工作狀態時回報實際結果，而不是停在處理中直到過期
+        int interrupted = imageUploadJobRepository.failUnfinished(nodeId, "Upload interrupted by server restart", LocalDateTime.now());
+        if (interrupted > 0) {
+            log.warn("Upload jobs interrupted by restart marked as failed: nodeId={}, count={}", nodeId, interrupted);
+        }
+
+        AtomicInteger threadCount = new AtomicInteger();
+        rawExecutor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread thread = new Thread(r, "image-upload-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        executor = ExecutorServiceMetrics.monitor(meterRegistry, rawExecutor, "image.upload");
+        log.info("Image upload executor started: threads={}, queueCapacity={}, tempDir={}", poolSize, queueCapacity, tempDir);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        rawExecutor.shutdown();
+    }
+
+    /**
+     * 清除已過期的上傳工作紀錄（expires_at 於建立時依 app.upload.job-ttl-hours 設定）
+     */
+    @Scheduled(cron = "${app.upload.job-cleanup-cron:0 47 * * * *}")
+    public void purgeExpiredJobs() {
+        if (!schedulerLeaseService.tryAcquire(CLEANUP_LEASE_NAME, Duration.ofSeconds(cleanupLeaseSeconds))) {
+            log.debug("Upload job cleanup skipped: lease held by another node");
+            return;
+        }
+        batchPurger.purge("image_upload_jobs", LocalDateTime.now(), imageUploadJobRepository::deleteExpiredBatch);
+    }
 
     /**
-     * 上傳圖片至 Cloudinary
+     * 上傳圖片（同步，等待儲存完成）
      *
      * @param file 上傳的圖片檔案
      * @return 圖片的 URL
      * @throws IOException 如果上傳失敗
      */
     public String uploadImage(MultipartFile file) throws IOException {
-        log.info("Uploading image: filename={}, size={} bytes, contentType={}", 
+        return store(file).url();
+    }
+
+    /**
+     * 驗證並儲存圖片（同步），回傳原圖與縮圖網址
+     */
+    public ImageStorage.StoredImage store(MultipartFile file) throws IOException {
+        log.info("Uploading image: filename={}, size={} bytes, contentType={}",
                 file.getOriginalFilename(), file.getSize(), file.getContentType());
+        validate(file);
+
+        Path tempFile = spool(file);
+        try {
+            return imageAssetService.register(tempFile, file.getContentType());
+        } catch (Exception e) {
+            log.error("Failed to upload image", e);
+            throw new IOException("Failed to upload image: " + e.getMessage(), e);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    /**
+     * 建立非同步上傳工作：檔案移到暫存目錄後立即回傳，由背景執行緒上傳
+     *
+     * @return 上傳工作（可用 uploadId 查詢進度）
+     */
+    public ImageUploadJob submitUpload(MultipartFile file) throws IOException {
+        validate(file);
+        Path tempFile = spool(file);
+
+        ImageUploadJob job = new ImageUploadJob();
+        job.setUploadId(UUID.randomUUID().toString());
+        job.setOriginalFilename(file.getOriginalFilename());
+        job.setNodeId(nodeId);
+        job.setExpiresAt(LocalDateTime.now().plusHours(jobTtlHours));
+        ImageUploadJob saved = imageUploadJobRepository.save(job);
 
+        String contentType = file.getContentType();
+        try {
+            executor.execute(() -> process(saved.getUploadId(), tempFile, contentType));
+        } catch (RejectedExecutionException e) {
+            Files.deleteIfExists(tempFile);
+            imageUploadJobRepository.deleteById(saved.getUploadId());
+            log.warn("Image upload rejected: executor saturated");
+            throw new ServiceBusyException("上傳佇列已滿，請稍後再試", RETRY_AFTER_SECONDS);
+        }
+        log.info("Image upload queued: uploadId={}, filename={}, size={} bytes",
+                saved.getUploadId(), file.getOriginalFilename(), file.getSize());
+        return saved;
+    }
+
+    /**
+     * 一次上傳多張顏色圖片：在上傳執行緒池並行處理（並行數受池大小限制），
+     * 回傳依上傳順序排列的網址，以及依顏色分組的網址（與 ProductRequest.colorImages 相同格式）
+     *
+     * @param files  圖片檔案
+     * @param colors 每張圖片對應的顏色；只給一個時套用到全部圖片
+     */
+    public ColorImagesUpload uploadColorImages(List<MultipartFile> files, List<String> colors) throws IOException {
+        if (files == null || files.isEmpty()) {
+            throw new IllegalArgumentException("No file provided");
+        }
+        if (files.size() > maxFilesPerRequest) {
+            throw new IllegalArgumentException("Too many files. Maximum is " + maxFilesPerRequest + " per request");
+        }
+        if (colors == null || (colors.size() != 1 && colors.size() != files.size())) {
+            throw new IllegalArgumentException("colors must contain one color or one color per file");
+        }
+        List<String> fileColors = new ArrayList<>(files.size());
+        for (int i = 0; i < files.size(); i++) {
+            String color = colors.get(colors.size() == 1 ? 0 : i);
+            if (color == null || color.isBlank()) {
+                throw new IllegalArgumentException("Color is required for every file");
+            }
+            fileColors.add(color.trim());
+            validate(files.get(i));
+        }
+
+        // multipart 暫存檔只在請求期間有效，先依序移到上傳暫存目錄
+        List<Path> tempFiles = new ArrayList<>(files.size());
+        // 暫存檔的擁有者：工作開始執行時取得，由工作在結束後刪除；尚未開始的由這裡刪除
+        List<AtomicBoolean> claimed = new ArrayList<>(files.size());
+        List<Future<ImageStorage.StoredImage>> futures = new ArrayList<>(files.size());
+        try {
+            for (MultipartFile file : files) {
+                tempFiles.add(spool(file));
+                claimed.add(new AtomicBoolean());
+            }
+            for (int i = 0; i < files.size(); i++) {
+                Path tempFile = tempFiles.get(i);
+                AtomicBoolean owner = claimed.get(i);
+                String contentType = files.get(i).getContentType();
+                futures.add(executor.submit(() -> {
+                    if (!owner.compareAndSet(false, true)) {
+                        return null; // 批次已失敗，暫存檔已由呼叫端刪除
+                    }
+                    try {
+                        return imageAssetService.register(tempFile, contentType);
+                    } finally {
+                        deleteQuietly(tempFile);
+                    }
+                }));
+            }
+
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(batchTimeoutSeconds);
+            List<String> urls = new ArrayList<>(files.size());
+            Map<String, List<String>> colorImages = new LinkedHashMap<>();
+            for (int i = 0; i < futures.size(); i++) {
+                String url = futures.get(i).get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS).url();
+                urls.add(url);
+                colorImages.computeIfAbsent(fileColors.get(i), key -> new ArrayList<>()).add(url);
+            }
+            log.info("Color images uploaded: files={}, colors={}", files.size(), colorImages.keySet());
+            return new ColorImagesUpload(urls, colorImages);
+        } catch (RejectedExecutionException e) {
+            log.warn("Color image upload rejected: executor saturated");
+            throw new ServiceBusyException("上傳佇列已滿，請稍後再試", RETRY_AFTER_SECONDS);
+        } catch (TimeoutException e) {
+            log.warn("Color image upload timed out after {}s", batchTimeoutSeconds);
+            throw new ServiceBusyException("圖片上傳逾時，請稍後再試", RETRY_AFTER_SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Image upload interrupted", e);
+        } catch (ExecutionException e) {
+            log.error("Failed to upload color images", e.getCause());
+            throw new IOException("Failed to upload image: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            // 執行中的上傳（Cloudinary / ImageIO）不會因中斷而停止，不能在此刪除它們正在讀取的檔案；
+            // 只取消並刪除尚未開始的工作
+            futures.forEach(future -> future.cancel(false));
+            for (int i = 0; i < tempFiles.size(); i++) {
+                if (claimed.get(i).compareAndSet(false, true)) {
+                    deleteQuietly(tempFiles.get(i));
+                }
+            }
+        }
+    }
+
+    public Optional<ImageUploadJob> getJob(String uploadId) {
+        return imageUploadJobRepository.findById(uploadId);
+    }
+
+    private void process(String uploadId, Path tempFile, String contentType) {
+        ImageUploadJob job = imageUploadJobRepository.findById(uploadId).orElse(null);
+        if (job == null) {
+            deleteQuietly(tempFile);
+            return;
+        }
+        job.setStatus(ImageUploadJob.Status.PROCESSING);
+        job = imageUploadJobRepository.save(job);
+
+        try {
+            ImageStorage.StoredImage uploaded = imageAssetService.register(tempFile, contentType);
+            job.setUrl(uploaded.url());
+            job.setThumbnailUrl(uploaded.thumbnailUrl());
+            job.setLargeUrl(uploaded.largeUrl());
+            job.setStatus(ImageUploadJob.Status.COMPLETED);
+            log.info("Image uploaded successfully: uploadId={}, url={}", uploadId, uploaded.url());
+        } catch (Exception e) {
+            log.error("Failed to upload image: uploadId={}", uploadId, e);
+            String message = String.valueOf(e.getMessage());
+            job.setErrorMessage(message.length() > MAX_ERROR_LENGTH ? message.substring(0, MAX_ERROR_LENGTH) : message);
+            job.setStatus(ImageUploadJob.Status.FAILED);
+        } finally {
+            deleteQuietly(tempFile);
+        }
+        imageUploadJobRepository.save(job);
+    }
+
+    private void validate(MultipartFile file) {
         // 驗證檔案類型
         String contentType = file.getContentType();
         if (contentType == null || !isAllowedImageType(contentType)) {
@@ -40,35 +321,30 @@ public class ImageUploadService {
         }
 
         // 驗證檔案大小 (最大 5MB)
-        long maxSize = 5 * 1024 * 1024; // 5MB
-        if (file.getSize() > maxSize) {
+        if (file.getSize() > MAX_FILE_SIZE) {
             throw new IllegalArgumentException("File too large. Maximum size is 5MB");
         }
+    }
 
+    /**
+     * 將 multipart 暫存檔移到上傳暫存目錄（請求結束後容器會刪除原本的暫存檔）
+     */
+    private Path spool(MultipartFile file) throws IOException {
+        Path tempFile = Files.createTempFile(tempDir, "upload-", ".tmp");
         try {
-            // 建立 Eager Transformation 縮圖版本
-            com.cloudinary.Transformation thumbnailTransform = new com.cloudinary.Transformation()
-                    .width(600).crop("limit").quality("auto:best").fetchFormat("auto");
-            com.cloudinary.Transformation largeTransform = new com.cloudinary.Transformation()
-                    .width(1200).crop("limit").quality("auto:good").fetchFormat("auto");
-
-            @SuppressWarnings("unchecked")
-            Map<String, Object> uploadResult = cloudinary.uploader().upload(
-                    file.getBytes(),
-                    ObjectUtils.asMap(
-                            "folder", "chooseMVP/products",
-                            "resource_type", "image",
-                            "eager", Arrays.asList(thumbnailTransform, largeTransform),
-                            "eager_async", false
-                    )
-            );
-
-            String secureUrl = (String) uploadResult.get("secure_url");
-            log.info("Image uploaded successfully: url={}", secureUrl);
-            return secureUrl;
-        } catch (Exception e) {
-            log.error("Failed to upload image to Cloudinary", e);
-            throw new IOException("Failed to upload image: " + e.getMessage(), e);
+            file.transferTo(tempFile);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tempFile);
+            throw e;
+        }
+        return tempFile;
+    }
+
+    private void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Failed to delete temp upload file: {}", file, e);
         }
     }
 
@@ -82,4 +358,7 @@ public class ImageUploadService {
                contentType.equals("image/gif") ||
                contentType.equals("image/webp");
     }
+
+    public record ColorImagesUpload(List<String> urls, Map<String, List<String>> colorImages) {
+    }
 }
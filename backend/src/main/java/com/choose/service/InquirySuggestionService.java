@@ -0,0 +1,207 @@
+package com.choose.service;
+
+import com.choose.common.HashedTfIdfIndex;
+import com.choose.dto.response.InquirySuggestionsDTO;
+import com.choose.model.ContactMessage;
+import com.choose.model.ReplyTemplate;
+import com.choose.repository.ContactMessageRepository;
+import com.choose.repository.ReplyTemplateRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 相似案件與回覆模板建議
+ * 已回覆案件（主旨 + 內容）與回覆模板（名稱 + 內容）各自建立記憶體 TF-IDF 索引，
+ * 回覆 / 刪除案件與異動模板時於交易提交後更新；定期從資料庫重建，讓多個節點的索引保持一致
+ * 重建期間的異動同時記錄下來，替換前重播到新索引，不會因為重建而遺失
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class InquirySuggestionService {
+
+    private static final int LOAD_BATCH_SIZE = 500;
+    private static final int MAX_LIMIT = 20;
+
+    private final ContactMessageRepository contactMessageRepository;
+    private final ReplyTemplateRepository replyTemplateRepository;
+
+    @Value("${app.suggestion.dimensions:4096}")
+    private int dimensions;
+
+    @Value("${app.suggestion.min-score:0.1}")
+    private float minScore;
+
+    // 重建時以新的索引整個替換
+    private volatile HashedTfIdfIndex inquiryIndex;
+    private volatile HashedTfIdfIndex templateIndex;
+
+    // 重建期間的異動（參數為案件索引、模板索引）；null 表示目前沒有重建；由 this 的鎖保護
+    private List<BiConsumer<HashedTfIdfIndex, HashedTfIdfIndex>> pendingDuringRebuild;
+
+    @PostConstruct
+    void init() {
+        inquiryIndex = new HashedTfIdfIndex(dimensions);
+        templateIndex = new HashedTfIdfIndex(dimensions);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        rebuild();
+    }
+
+    @Scheduled(fixedDelayString = "${app.suggestion.rebuild-interval-ms:1800000}",
+            initialDelayString = "${app.suggestion.rebuild-interval-ms:1800000}")
+    public void rebuild() {
+        synchronized (this) {
+            pendingDuringRebuild = new ArrayList<>();
+        }
+        HashedTfIdfIndex inquiries = new HashedTfIdfIndex(dimensions);
+        HashedTfIdfIndex templates = new HashedTfIdfIndex(dimensions);
+        try {
+            long afterId = 0;
+            List<Object[]> batch;
+            do {
+                batch = contactMessageRepository.findRepliedTextAfter(afterId, PageRequest.of(0, LOAD_BATCH_SIZE));
+                for (Object[] row : batch) {
+                    afterId = (Long) row[0];
+                    inquiries.put(afterId, inquiryText((String) row[1], (String) row[2]));
+                }
+            } while (batch.size() == LOAD_BATCH_SIZE);
+
+            for (ReplyTemplate template : replyTemplateRepository.findAll()) {
+                templates.put(template.getTemplateId(), templateText(template));
+            }
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                pendingDuringRebuild = null;
+            }
+            throw e;
+        }
+
+        synchronized (this) {
+            // 讀取資料庫快照之後提交的異動可能不在新索引中，替換前重播
+            pendingDuringRebuild.forEach(op -> op.accept(inquiries, templates));
+            pendingDuringRebuild = null;
+            inquiryIndex = inquiries;
+            templateIndex = templates;
+        }
+        log.info("Suggestion index rebuilt: inquiries={}, templates={}", inquiries.size(), templates.size());
+    }
+
+    /**
+     * 案件回覆後加入索引（只有已回覆的案件才有參考價值）
+     */
+    public void indexInquiry(ContactMessage message) {
+        if (message.getAdminReply() != null) {
+            long messageId = message.getMessageId();
+            String text = inquiryText(message.getSubject(), message.getMessage());
+            afterCommit((inquiries, templates) -> inquiries.put(messageId, text));
+        }
+    }
+
+    public void removeInquiry(Long messageId) {
+        afterCommit((inquiries, templates) -> inquiries.remove(messageId));
+    }
+
+    public void indexTemplate(ReplyTemplate template) {
+        long templateId = template.getTemplateId();
+        String text = templateText(template);
+        afterCommit((inquiries, templates) -> templates.put(templateId, text));
+    }
+
+    public void removeTemplate(Long templateId) {
+        afterCommit((inquiries, templates) -> templates.remove(templateId));
+    }
+
+    /**
+     * 在交易中呼叫時等提交後才更新索引，回滾的異動不會進入索引
+     */
+    private void afterCommit(BiConsumer<HashedTfIdfIndex, HashedTfIdfIndex> op) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply(op);
+                }
+            });
+        } else {
+            apply(op);
+        }
+    }
+
+    private synchronized void apply(BiConsumer<HashedTfIdfIndex, HashedTfIdfIndex> op) {
+        op.accept(inquiryIndex, templateIndex);
+        if (pendingDuringRebuild != null) {
+            pendingDuringRebuild.add(op);
+        }
+    }
+
+    /**
+     * 依案件主旨與內容取得建議
+     */
+    public InquirySuggestionsDTO suggest(Long messageId, int limit) {
+        ContactMessage message = contactMessageRepository.findById(messageId)
+                .orElseThrow(() -> new IllegalArgumentException("Message not found"));
+        int k = Math.min(Math.max(limit, 1), MAX_LIMIT);
+        String text = inquiryText(message.getSubject(), message.getMessage());
+
+        List<HashedTfIdfIndex.Match> inquiryMatches = aboveMinScore(inquiryIndex.topK(text, k, messageId));
+        Map<Long, ContactMessage> inquiries = contactMessageRepository
+                .findAllById(inquiryMatches.stream().map(HashedTfIdfIndex.Match::id).toList()).stream()
+                .collect(Collectors.toMap(ContactMessage::getMessageId, Function.identity()));
+        List<InquirySuggestionsDTO.SimilarInquiryDTO> similar = new ArrayList<>();
+        for (HashedTfIdfIndex.Match match : inquiryMatches) {
+            // 索引可能比資料庫舊（例如其他節點已刪除），查不到的略過
+            ContactMessage inquiry = inquiries.get(match.id());
+            if (inquiry != null) {
+                similar.add(new InquirySuggestionsDTO.SimilarInquiryDTO(inquiry.getMessageId(),
+                        inquiry.getCaseNumber(), inquiry.getSubject(), inquiry.getMessage(),
+                        inquiry.getAdminReply(), match.score()));
+            }
+        }
+
+        List<HashedTfIdfIndex.Match> templateMatches = aboveMinScore(templateIndex.topK(text, k, null));
+        Map<Long, ReplyTemplate> templates = replyTemplateRepository
+                .findAllById(templateMatches.stream().map(HashedTfIdfIndex.Match::id).toList()).stream()
+                .collect(Collectors.toMap(ReplyTemplate::getTemplateId, Function.identity()));
+        List<InquirySuggestionsDTO.TemplateSuggestionDTO> suggestedTemplates = new ArrayList<>();
+        for (HashedTfIdfIndex.Match match : templateMatches) {
+            ReplyTemplate template = templates.get(match.id());
+            if (template != null) {
+                suggestedTemplates.add(new InquirySuggestionsDTO.TemplateSuggestionDTO(
+                        template.getTemplateId(), template.getName(), match.score()));
+            }
+        }
+
+        return new InquirySuggestionsDTO(similar, suggestedTemplates);
+    }
+
+    private List<HashedTfIdfIndex.Match> aboveMinScore(List<HashedTfIdfIndex.Match> matches) {
+        return matches.stream().filter(match -> match.score() >= minScore).toList();
+    }
+
+    private static String inquiryText(String subject, String message) {
+        return (subject != null ? subject : "") + "\n" + (message != null ? message : "");
+    }
+
+    private static String templateText(ReplyTemplate template) {
+        return template.getName() + "\n" + template.getContent();
+    }
+}
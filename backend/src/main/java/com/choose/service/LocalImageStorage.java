@@ -0,0 +1,190 @@
+package com.choose.service;
+
+import com.choose.common.ContentHash;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+/**
+ * 本機磁碟圖片儲存：檔名為內容的 SHA-256，相同內容只存一份，網址永不變動可長期快取；
+ * 由 /api/public/images/{name} 提供下載，方便在單機上壓測整個上傳與讀取流程；
+ * /api/public/direct-uploads 模擬外部儲存的簽章直傳端點
+ */
+@Service
+@ConditionalOnProperty(name = "app.image-storage.type", havingValue = "local")
+@Slf4j
+public class LocalImageStorage implements ImageStorage {
+
+    private static final Map<String, String> EXTENSIONS = Map.of(
+            "image/jpeg", "jpg",
+            "image/jpg", "jpg",
+            "image/png", "png",
+            "image/gif", "gif",
+            "image/webp", "webp");
+
+    private static final Map<String, String> CONTENT_TYPES = Map.of(
+            "jpg", "image/jpeg",
+            "png", "image/png",
+            "gif", "image/gif",
+            "webp", "image/webp");
+
+    // 只接受 雜湊.副檔名，避免路徑穿越
+    private static final Pattern FILE_NAME = Pattern.compile("[0-9a-f]{64}\\.(jpg|png|gif|webp)");
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+    private final SecureRandom secureRandom = new SecureRandom();
+
+    @Value("${app.image-storage.local.directory:./data/images}")
+    private Path directory;
+
+    @Value("${app.image-storage.local.public-base-url:http://localhost:8080/chooseMVP}")
+    private String publicBaseUrl;
+
+    @Value("${app.image-storage.local.signing-secret:${jwt.secret:chooseMVPSecretKey12345678901234567890}}")
+    private String signingSecret;
+
+    private SecretKeySpec signingKey;
+
+    @PostConstruct
+    void init() throws IOException {
+        // 與 JWT 共用密鑰時加上用途前綴，兩種簽章不能互換
+        signingKey = new SecretKeySpec(("direct-upload:" + signingSecret).getBytes(StandardCharsets.UTF_8), HMAC_ALGORITHM);
+        directory = Files.createDirectories(directory).toAbsolutePath().normalize();
+        log.info("Local image storage enabled: directory={}", directory);
+    }
+
+    @Override
+    public StoredImage store(Path file, String contentType) throws IOException {
+        String extension = EXTENSIONS.get(contentType);
+        if (extension == null) {
+            throw new IllegalArgumentException("Unsupported image type: " + contentType);
+        }
+
+        String fileName = ContentHash.sha256(file) + "." + extension;
+        Path target = directory.resolve(fileName);
+        if (!Files.exists(target)) {
+            // 先複製到同目錄的暫存名稱再原子搬移，讀取端不會看到寫到一半的檔案
+            Path staging = Files.createTempFile(directory, ".staging-", ".tmp");
+            try {
+                Files.copy(file, staging, StandardCopyOption.REPLACE_EXISTING);
+                Files.move(staging, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (FileAlreadyExistsException e) {
+                // 同內容的檔案剛好被另一個請求寫入
+                log.debug("Image already stored concurrently: {}", fileName);
+            } finally {
+                Files.deleteIfExists(staging);
+            }
+        }
+
+        // 縮圖由 ImageAssetService 在本機產生
+        return new StoredImage(publicBaseUrl + "/api/public/images/" + fileName, null, null);
+    }
+
+    /**
+     * token 格式：exp.nonce.HMAC，只送到本機的直傳端點
+     */
+    @Override
+    public DirectUploadTicket prepareDirectUpload(Duration validity) {
+        Instant expiresAt = Instant.now().plus(validity);
+        byte[] nonce = new byte[12];
+        secureRandom.nextBytes(nonce);
+        String payload = expiresAt.getEpochSecond() + "." + ENCODER.encodeToString(nonce);
+        String token = payload + "." + sign("ticket|" + payload);
+        return new DirectUploadTicket(publicBaseUrl + "/api/public/direct-uploads", "file",
+                Map.of("token", token), expiresAt);
+    }
+
+    /**
+     * 直傳端點檢查 token 簽章與期限
+     */
+    public boolean isValidUploadToken(String token) {
+        if (token == null) {
+            return false;
+        }
+        int lastDot = token.lastIndexOf('.');
+        int firstDot = token.indexOf('.');
+        if (firstDot <= 0 || lastDot <= firstDot) {
+            return false;
+        }
+        String payload = token.substring(0, lastDot);
+        if (!constantTimeEquals(sign("ticket|" + payload), token.substring(lastDot + 1))) {
+            return false;
+        }
+        try {
+            return Instant.now().getEpochSecond() <= Long.parseLong(token.substring(0, firstDot));
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 直傳端點回傳的收據簽章（對應 Cloudinary 回應中的 signature）
+     */
+    public String signReceipt(String url) {
+        return sign("receipt|" + url);
+    }
+
+    @Override
+    public StoredImage verifyDirectUpload(Map<String, String> result) {
+        String url = result.get("url");
+        String signature = result.get("signature");
+        if (url == null || signature == null) {
+            throw new IllegalArgumentException("Incomplete upload result");
+        }
+        if (!url.startsWith(publicBaseUrl + "/api/public/images/") || !constantTimeEquals(signReceipt(url), signature)) {
+            throw new IllegalArgumentException("Invalid upload signature");
+        }
+        return new StoredImage(url, null, null);
+    }
+
+    /**
+     * 依檔名取得已儲存的圖片
+     */
+    public Optional<Path> resolve(String fileName) {
+        if (fileName == null || !FILE_NAME.matcher(fileName).matches()) {
+            return Optional.empty();
+        }
+        Path file = directory.resolve(fileName);
+        return Files.isRegularFile(file) ? Optional.of(file) : Optional.empty();
+    }
+
+    public String contentType(String fileName) {
+        return CONTENT_TYPES.getOrDefault(fileName.substring(fileName.lastIndexOf('.') + 1), "application/octet-stream");
+    }
+
+    private String sign(String value) {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(signingKey);
+            return ENCODER.encodeToString(mac.doFinal(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Failed to sign direct upload", e);
+        }
+    }
+
+    private static boolean constantTimeEquals(String expected, String actual) {
+        return MessageDigest.isEqual(expected.getBytes(StandardCharsets.UTF_8), actual.getBytes(StandardCharsets.UTF_8));
+    }
+}
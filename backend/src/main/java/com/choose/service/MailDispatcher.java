@@ -0,0 +1,198 @@
+package com.choose.service;
+
+import com.choose.model.MailOutbox;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 背景寄送 mail_outbox 中的郵件
+ * 每輪取出一批，平均分給各工作執行緒；每個執行緒借用一條池化的 SMTP 連線連續寄送自己的部分，
+ * 寄送速率由 AdaptiveMailThrottle 控制，全部完成後才取下一批；單輪超過時間預算即停止，剩餘的留到下一輪
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class MailDispatcher {
+
+    private final MailOutboxService mailOutboxService;
+    private final SmtpTransportPool transportPool;
+    private final AdaptiveMailThrottle throttle;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.mail.dispatcher.concurrency:4}")
+    private int concurrency;
+
+    @Value("${app.mail.dispatcher.batch-size:20}")
+    private int batchSize;
+
+    @Value("${app.mail.dispatcher.tick-budget-ms:5000}")
+    private long tickBudgetMs;
+
+    private ThreadPoolExecutor rawExecutor;
+    private ExecutorService executor;
+    private Counter sentCounter;
+    private Counter failedCounter;
+    private Counter deadCounter;
+
+    @PostConstruct
+    void init() {
+        AtomicInteger threadCount = new AtomicInteger();
+        // 每輪最多提交 concurrency 個工作，佇列不會無限成長
+        rawExecutor = new ThreadPoolExecutor(concurrency, concurrency, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(),
+                r -> {
+                    Thread thread = new Thread(r, "mail-dispatch-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor = ExecutorServiceMetrics.monitor(meterRegistry, rawExecutor, "mail.dispatcher");
+        sentCounter = meterRegistry.counter("mail.outbox.sends", "result", "sent");
+        failedCounter = meterRegistry.counter("mail.outbox.sends", "result", "failed");
+        deadCounter = meterRegistry.counter("mail.outbox.sends", "result", "dead");
+    }
+
+    @PreDestroy
+    void shutdown() {
+        rawExecutor.shutdown();
+    }
+
+    /**
+     * 每輪最多執行 tick-budget-ms，剩餘的郵件留到下一輪，避免長時間佔用排程執行緒
+     */
+    @Scheduled(fixedDelayString = "${app.mail.dispatcher.interval-ms:2000}")
+    public void dispatch() {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(tickBudgetMs);
+        List<MailOutbox> batch;
+        do {
+            batch = mailOutboxService.claimBatch(batchSize);
+            if (batch.isEmpty()) {
+                return;
+            }
+            CompletableFuture.allOf(partition(batch, concurrency).stream()
+                    .map(slice -> CompletableFuture.runAsync(() -> sendAll(slice), executor))
+                    .toArray(CompletableFuture[]::new))
+                    .join();
+        } while (batch.size() == batchSize && System.nanoTime() < deadline);
+    }
+
+    /**
+     * 以同一條連線依序寄送；連線中斷時換一條繼續
+     */
+    private void sendAll(List<MailOutbox> mails) {
+        SmtpTransportPool.PooledTransport pooled = null;
+        int index = 0;
+        try {
+            for (; index < mails.size(); index++) {
+                MailOutbox mail = mails.get(index);
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedException();
+                }
+                if (pooled == null) {
+                    try {
+                        pooled = transportPool.borrow();
+                    } catch (MessagingException e) {
+                        fail(mail, e);
+                        continue;
+                    }
+                }
+                if (!send(pooled, mail)) {
+                    transportPool.release(pooled, false);
+                    pooled = null;
+                }
+            }
+        } catch (InterruptedException e) {
+            // 停機不是寄送失敗：目前與剩餘的郵件放回佇列，不消耗嘗試次數；
+            // 放回前先清除中斷旗標，避免取得資料庫連線時再次被中斷
+            Thread.interrupted();
+            releaseRemaining(mails.subList(index, mails.size()));
+            Thread.currentThread().interrupt();
+        } finally {
+            if (pooled != null) {
+                transportPool.release(pooled, true);
+            }
+        }
+    }
+
+    private void releaseRemaining(List<MailOutbox> remaining) {
+        try {
+            mailOutboxService.release(remaining.stream().map(MailOutbox::getMailId).toList());
+        } catch (RuntimeException e) {
+            // 放回失敗時，由 releaseStale 在租約到期後處理
+            log.warn("Failed to release claimed mails: count={}", remaining.size(), e);
+        }
+    }
+
+    /**
+     * @return 連線是否仍可使用
+     */
+    private boolean send(SmtpTransportPool.PooledTransport pooled, MailOutbox mail) throws InterruptedException {
+        try {
+            throttle.acquire();
+            MimeMessage message = new MimeMessage(transportPool.getSession());
+            boolean multipart = mail.getHtmlBody() != null;
+            MimeMessageHelper helper = new MimeMessageHelper(message, multipart, StandardCharsets.UTF_8.name());
+            helper.setTo(mail.getRecipient());
+            helper.setSubject(mail.getSubject());
+            if (multipart) {
+                helper.setText(mail.getBody(), mail.getHtmlBody());
+            } else {
+                helper.setText(mail.getBody());
+            }
+            message.saveChanges();
+            pooled.getTransport().sendMessage(message, message.getAllRecipients());
+            pooled.recordSent();
+            throttle.onSuccess();
+
+            mailOutboxService.markSent(mail.getMailId());
+            sentCounter.increment();
+            log.info("Mail sent: mailId={}, category={}, to={}", mail.getMailId(), mail.getCategory(), mail.getRecipient());
+            return true;
+        } catch (InterruptedException e) {
+            throw e;
+        } catch (Exception e) {
+            throttle.onFailure(e);
+            fail(mail, e);
+            return pooled.isConnected();
+        }
+    }
+
+    private void fail(MailOutbox mail, Exception e) {
+        failedCounter.increment();
+        if (mailOutboxService.markFailed(mail.getMailId(), e.getMessage())) {
+            deadCounter.increment();
+        }
+    }
+
+    private static <T> List<List<T>> partition(List<T> items, int parts) {
+        int sliceCount = Math.min(parts, items.size());
+        List<List<T>> slices = new ArrayList<>(sliceCount);
+        for (int i = 0; i < sliceCount; i++) {
+            slices.add(new ArrayList<>());
+        }
+        for (int i = 0; i < items.size(); i++) {
+            slices.get(i % sliceCount).add(items.get(i));
+        }
+        return slices;
+    }
+}
@@ -0,0 +1,157 @@
+package com.choose.service;
+
+import com.choose.model.MailOutbox;
+import com.choose.repository.MailOutboxRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 郵件 outbox 的寫入與狀態轉換，並定期清除已寄出 / DEAD 的郵件
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class MailOutboxService {
+
+    private static final int MAX_ERROR_LENGTH = 500;
+    private static final String CLEANUP_LEASE_NAME = "mail-outbox-cleanup";
+
+    private final MailOutboxRepository mailOutboxRepository;
+    private final SchedulerLeaseService schedulerLeaseService;
+    private final BatchPurger batchPurger;
+
+    @Value("${app.mail.outbox.max-attempts:6}")
+    private int maxAttempts;
+
+    @Value("${app.mail.outbox.backoff-base-seconds:30}")
+    private long backoffBaseSeconds;
+
+    @Value("${app.mail.outbox.backoff-max-seconds:3600}")
+    private long backoffMaxSeconds;
+
+    @Value("${app.mail.outbox.sending-timeout-seconds:300}")
+    private long sendingTimeoutSeconds;
+
+    // 已寄出 / 放棄寄送的郵件保留天數
+    @Value("${app.mail.outbox.retention-days:3}")
+    private long retentionDays;
+
+    @Value("${app.cleanup.lease-seconds:600}")
+    private long cleanupLeaseSeconds;
+
+    /**
+     * 寫入待寄送郵件（htmlBody 可為 null，只寄純文字）；有進行中的交易時一併提交，業務資料回滾時郵件也不會寄出
+     */
+    @Transactional
+    public MailOutbox enqueue(String recipient, String subject, String body, String htmlBody, String category) {
+        MailOutbox mail = new MailOutbox();
+        mail.setRecipient(recipient);
+        mail.setSubject(subject);
+        mail.setBody(body);
+        mail.setHtmlBody(htmlBody);
+        mail.setCategory(category);
+        MailOutbox saved = mailOutboxRepository.save(mail);
+        log.info("Mail queued: mailId={}, category={}, to={}", saved.getMailId(), category, recipient);
+        return saved;
+    }
+
+    /**
+     * 取出一批到期的郵件並標記為寄送中
+     */
+    @Transactional
+    public List<MailOutbox> claimBatch(int limit) {
+        LocalDateTime now = LocalDateTime.now();
+        int released = mailOutboxRepository.releaseStale(now);
+        if (released > 0) {
+            log.warn("Stale sending mails returned to queue: count={}", released);
+        }
+
+        List<Long> ids = mailOutboxRepository.lockDueIds(now, limit);
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        mailOutboxRepository.markSending(ids, now.plusSeconds(sendingTimeoutSeconds));
+        return mailOutboxRepository.findAllById(ids);
+    }
+
+    @Transactional
+    public void markSent(Long mailId) {
+        mailOutboxRepository.findById(mailId).ifPresent(mail -> {
+            mail.setStatus(MailOutbox.Status.SENT);
+            mail.setAttempts(mail.getAttempts() + 1);
+            mail.setSentAt(LocalDateTime.now());
+            mail.setLockedUntil(null);
+            mail.setLastError(null);
+        });
+    }
+
+    /**
+     * 放回尚未寄送的郵件（停機等非寄送失敗的情況），attempts 不變
+     */
+    @Transactional
+    public void release(List<Long> mailIds) {
+        if (mailIds.isEmpty()) {
+            return;
+        }
+        int released = mailOutboxRepository.releaseClaimed(mailIds);
+        log.info("Claimed mails released back to queue: count={}", released);
+    }
+
+    /**
+     * 寄送失敗：以指數退避排定下次重試，次數用盡則標記為 DEAD
+     * @return 是否已標記為 DEAD
+     */
+    @Transactional
+    public boolean markFailed(Long mailId, String error) {
+        MailOutbox mail = mailOutboxRepository.findById(mailId).orElse(null);
+        if (mail == null) {
+            return false;
+        }
+        int attempts = mail.getAttempts() + 1;
+        mail.setAttempts(attempts);
+        mail.setLockedUntil(null);
+        mail.setLastError(error != null && error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error);
+
+        if (attempts >= maxAttempts) {
+            mail.setStatus(MailOutbox.Status.DEAD);
+            log.error("Mail moved to dead letter: mailId={}, to={}, attempts={}, error={}",
+                    mailId, mail.getRecipient(), attempts, error);
+            return true;
+        }
+        mail.setStatus(MailOutbox.Status.PENDING);
+        mail.setNextAttemptAt(LocalDateTime.now().plus(backoff(attempts)));
+        log.warn("Mail send failed, will retry: mailId={}, attempts={}, nextAttemptAt={}, error={}",
+                mailId, attempts, mail.getNextAttemptAt(), error);
+        return false;
+    }
+
+    public long countByStatus(MailOutbox.Status status) {
+        return mailOutboxRepository.countByStatus(status);
+    }
+
+    /**
+     * 清除超過保留天數的已寄出 / DEAD 郵件（內文含一次性連結，不長期保留）
+     */
+    @Scheduled(cron = "${app.mail.outbox.cleanup-cron:0 27 * * * *}")
+    public void purgeSent() {
+        if (!schedulerLeaseService.tryAcquire(CLEANUP_LEASE_NAME, Duration.ofSeconds(cleanupLeaseSeconds))) {
+            log.debug("Mail outbox cleanup skipped: lease held by another node");
+            return;
+        }
+        batchPurger.purge("mail_outbox", LocalDateTime.now().minusDays(retentionDays),
+                mailOutboxRepository::deleteSentBefore);
+    }
+
+    private Duration backoff(int attempts) {
+        long seconds = backoffBaseSeconds << Math.min(attempts - 1, 20);
+        return Duration.ofSeconds(Math.min(seconds, backoffMaxSeconds));
+    }
+}
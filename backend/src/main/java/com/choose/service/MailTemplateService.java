@@ -0,0 +1,77 @@
+package com.choose.service;
+
+import com.choose.common.CompiledTemplate;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Service;
+import org.springframework.web.util.HtmlUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * 郵件模板：啟動時從 classpath:mail-templates/ 載入並編譯純文字與 HTML 版本
+ */
+@Service
+@Slf4j
+public class MailTemplateService {
+
+    private static final String TEMPLATE_LOCATION = "mail-templates/";
+
+    private final Map<MailTemplate, CompiledTemplate> textTemplates = new EnumMap<>(MailTemplate.class);
+    private final Map<MailTemplate, CompiledTemplate> htmlTemplates = new EnumMap<>(MailTemplate.class);
+
+    @PostConstruct
+    void init() {
+        for (MailTemplate template : MailTemplate.values()) {
+            textTemplates.put(template, CompiledTemplate.compile(load(template.fileName + ".txt")));
+            htmlTemplates.put(template, CompiledTemplate.compile(load(template.fileName + ".html")));
+        }
+        log.info("Mail templates compiled: {}", textTemplates.size());
+    }
+
+    public RenderedMail render(MailTemplate template, Map<String, ?> values) {
+        return new RenderedMail(
+                template.subject,
+                textTemplates.get(template).render(values),
+                htmlTemplates.get(template).render(values, MailTemplateService::escapeHtml));
+    }
+
+    // 變數值做 HTML 跳脫，換行轉為 <br>
+    private static String escapeHtml(String value) {
+        return HtmlUtils.htmlEscape(value, StandardCharsets.UTF_8.name()).replace("\n", "<br>");
+    }
+
+    private static String load(String fileName) {
+        try (InputStream in = new ClassPathResource(TEMPLATE_LOCATION + fileName).getInputStream()) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Mail template not found: " + fileName, e);
+        }
+    }
+
+    public enum MailTemplate {
+        EMAIL_VERIFY("verify-email", "[Choose] 請驗證您的信箱"),
+        PASSWORD_RESET("password-reset", "[Choose] 重設密碼"),
+        LOGIN_LINK("login-link", "[Choose] 登入驗證連結"),
+        INQUIRY_REPLY("inquiry-reply", "[Choose] 您的詢問已回覆"),
+        ORDER_STATUS_DIGEST("order-status-digest", "[Choose] 您的訂單狀態已更新"),
+        BACK_IN_STOCK("back-in-stock", "[Choose] 您關注的商品已到貨");
+
+        private final String fileName;
+        private final String subject;
+
+        MailTemplate(String fileName, String subject) {
+            this.fileName = fileName;
+            this.subject = subject;
+        }
+    }
+
+    public record RenderedMail(String subject, String text, String html) {
+    }
+}
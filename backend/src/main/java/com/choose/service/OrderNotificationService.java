@@ -0,0 +1,118 @@
+package com.choose.service;
+
+import com.choose.model.Order;
+import com.choose.model.OrderStatusNotification;
+import com.choose.model.User;
+import com.choose.repository.OrderStatusNotificationRepository;
+import com.choose.repository.UserRepository;
+import com.choose.service.MailTemplateService.MailTemplate;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 訂單狀態通知：狀態更新時只寫入一筆待彙整記錄，
+ * 由 OrderStatusDigestJob 依使用者彙整成一封摘要郵件寫入 outbox；已彙整的記錄定期清除
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class OrderNotificationService {
+
+    // 需要通知顧客的狀態
+    private static final Set<Order.OrderStatus> NOTIFIED_STATUSES = Set.of(Order.OrderStatus.PAID, Order.OrderStatus.SHIPPED);
+    private static final String CLEANUP_LEASE_NAME = "order-notification-cleanup";
+
+    private final OrderStatusNotificationRepository notificationRepository;
+    private final UserRepository userRepository;
+    private final MailTemplateService mailTemplateService;
+    private final MailOutboxService mailOutboxService;
+    private final SchedulerLeaseService schedulerLeaseService;
+    private final BatchPurger batchPurger;
+
+    // 已彙整寄出的通知保留天數
+    @Value("${app.order-digest.retention-days:7}")
+    private long retentionDays;
+
+    @Value("${app.cleanup.lease-seconds:600}")
+    private long cleanupLeaseSeconds;
+
+    /**
+     * 記錄狀態異動（加入呼叫端的交易，不做任何郵件 I/O）
+     */
+    @Transactional
+    public void recordStatusChange(Order order, Order.OrderStatus oldStatus) {
+        if (order.getStatus() == oldStatus || !NOTIFIED_STATUSES.contains(order.getStatus())) {
+            return;
+        }
+        OrderStatusNotification notification = new OrderStatusNotification();
+        notification.setUserId(order.getUser().getUserId());
+        notification.setOrderId(order.getOrderId());
+        notification.setStatus(order.getStatus());
+        notificationRepository.save(notification);
+    }
+
+    /**
+     * 將某位使用者所有待處理的通知彙整成一封郵件
+     */
+    @Transactional
+    public void sendDigest(Long userId) {
+        List<OrderStatusNotification> pending = notificationRepository.findByUserIdAndProcessedAtIsNullOrderByCreatedAtAsc(userId);
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        pending.forEach(notification -> notification.setProcessedAt(now));
+
+        User user = userRepository.findById(userId).orElse(null);
+        if (user == null || Boolean.TRUE.equals(user.getIsDeleted())) {
+            return;
+        }
+
+        // 同一訂單在彙整期間內多次異動，只列出最新狀態
+        Map<Long, Order.OrderStatus> latestByOrder = new LinkedHashMap<>();
+        pending.forEach(notification -> latestByOrder.put(notification.getOrderId(), notification.getStatus()));
+
+        StringBuilder orders = new StringBuilder();
+        latestByOrder.forEach((orderId, status) ->
+                orders.append("訂單 #").append(orderId).append("：").append(statusLabel(status)).append('\n'));
+
+        MailTemplateService.RenderedMail mail = mailTemplateService.render(MailTemplate.ORDER_STATUS_DIGEST,
+                Map.of("name", user.getName(), "orders", orders.toString().stripTrailing()));
+        mailOutboxService.enqueue(user.getEmail(), mail.subject(), mail.text(), mail.html(),
+                MailTemplate.ORDER_STATUS_DIGEST.name());
+        log.info("Order status digest queued: userId={}, orders={}", userId, latestByOrder.size());
+    }
+
+    /**
+     * 清除超過保留天數的已彙整通知
+     */
+    @Scheduled(cron = "${app.order-digest.cleanup-cron:0 37 * * * *}")
+    public void purgeProcessed() {
+        if (!schedulerLeaseService.tryAcquire(CLEANUP_LEASE_NAME, Duration.ofSeconds(cleanupLeaseSeconds))) {
+            log.debug("Order notification cleanup skipped: lease held by another node");
+            return;
+        }
+        batchPurger.purge("order_status_notifications", LocalDateTime.now().minusDays(retentionDays),
+                notificationRepository::deleteProcessedBefore);
+    }
+
+    private static String statusLabel(Order.OrderStatus status) {
+        return switch (status) {
+            case PAID -> "已確認付款，準備出貨中";
+            case SHIPPED -> "已出貨";
+            default -> status.name();
+        };
+    }
+}
@@ -1,6 +1,8 @@
 package com.choose.service;
 
+import com.choose.dto.response.OrderQuoteDTO;
 import com.choose.model.*;
+import com.choose.repository.CartItemRepository;
 import com.choose.repository.OrderRepository;
 import com.choose.repository.ProductVariantRepository;
 import com.choose.repository.UserRepository;
@@ -10,8 +12,13 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -20,6 +27,8 @@ public class OrderService {
     private final OrderRepository orderRepository;
     private final UserRepository userRepository;
     private final ProductVariantRepository productVariantRepository;
+    private final CartItemRepository cartItemRepository;
+    private final OrderNotificationService orderNotificationService;
 
     public List<Order> getAllOrders() {
         return orderRepository.findAllByOrderByCreatedAtDesc();
@@ -86,6 +95,70 @@ public class OrderService {
         return savedOrder;
     }
 
+    /**
+     * 結帳試算：以單一查詢檢查所有規格的庫存與目前售價（唯讀交易）
+     *
+     * @param quantities variantId -> 數量；為空時使用該用戶的購物車
+     */
+    @Transactional(readOnly = true)
+    public OrderQuoteDTO quoteOrder(Long userId, Map<Long, Integer> quantities) {
+        Map<Long, Integer> requested = quantities;
+        if (requested == null || requested.isEmpty()) {
+            requested = new LinkedHashMap<>();
+            for (CartItem cartItem : cartItemRepository.findByUserUserId(userId)) {
+                requested.merge(cartItem.getVariant().getVariantId(), cartItem.getQuantity(), Integer::sum);
+            }
+        }
+
+        Map<Long, ProductVariant> variants = requested.isEmpty()
+                ? Map.of()
+                : productVariantRepository.findAllWithProductByVariantIdIn(requested.keySet()).stream()
+                        .collect(Collectors.toMap(ProductVariant::getVariantId, Function.identity()));
+
+        List<OrderQuoteDTO.QuoteLineDTO> lines = new ArrayList<>();
+        BigDecimal total = BigDecimal.ZERO;
+        boolean valid = true;
+        for (Map.Entry<Long, Integer> entry : requested.entrySet()) {
+            OrderQuoteDTO.QuoteLineDTO line = new OrderQuoteDTO.QuoteLineDTO();
+            line.setVariantId(entry.getKey());
+            line.setQuantity(entry.getValue());
+
+            ProductVariant variant = variants.get(entry.getKey());
+            if (variant == null) {
+                line.setProblem(OrderQuoteDTO.Problem.VARIANT_NOT_FOUND);
+            } else {
+                BigDecimal price = variant.getProduct().getPrice();
+                line.setSkuCode(variant.getSkuCode());
+                line.setProductName(variant.getProduct().getName());
+                line.setColor(variant.getColor());
+                line.setSize(variant.getSize());
+                line.setUnitPrice(price);
+                line.setAvailableStock(variant.getStock());
+                line.setLineTotal(price.multiply(BigDecimal.valueOf(entry.getValue())));
+
+                if (variant.getStock() <= 0) {
+                    line.setProblem(OrderQuoteDTO.Problem.OUT_OF_STOCK);
+                } else if (variant.getStock() < entry.getValue()) {
+                    line.setProblem(OrderQuoteDTO.Problem.INSUFFICIENT_STOCK);
+                }
+            }
+
+            // 有問題的項目無法下單，不計入總金額
+            if (line.getProblem() != null) {
+                valid = false;
+            } else {
+                total = total.add(line.getLineTotal());
+            }
+            lines.add(line);
+        }
+
+        OrderQuoteDTO quote = new OrderQuoteDTO();
+        quote.setLines(lines);
+        quote.setTotal(total);
+        quote.setValid(valid && !lines.isEmpty());
+        return quote;
+    }
+
     @Transactional
     public Order updateOrderStatus(Long orderId, Order.OrderStatus status) {
         log.info("Updating order status: orderId={}, newStatus={}", orderId, status);
@@ -99,6 +172,8 @@ public class OrderService {
         Order.OrderStatus oldStatus = order.getStatus();
         order.setStatus(status);
         Order saved = orderRepository.save(order);
+        // 付款確認 / 出貨通知：只寫入待彙整記錄，郵件由背景排程寄出
+        orderNotificationService.recordStatusChange(saved, oldStatus);
         
         log.info("Order status updated: orderId={}, oldStatus={}, newStatus={}", orderId, oldStatus, status);
         return saved;
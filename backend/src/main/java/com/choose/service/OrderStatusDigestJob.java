@@ -0,0 +1,55 @@
+package com.choose.service;
+
+import com.choose.repository.OrderStatusNotificationRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 定期彙整訂單狀態通知：每位使用者在通知安靜一段時間後（或等待過久時）寄出一封摘要
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class OrderStatusDigestJob {
+
+    private static final String LEASE_NAME = "order-status-digest";
+
+    private final SchedulerLeaseService schedulerLeaseService;
+    private final OrderNotificationService orderNotificationService;
+    private final OrderStatusNotificationRepository notificationRepository;
+
+    // 最後一筆通知之後安靜多久才寄出
+    @Value("${app.order-digest.quiet-seconds:120}")
+    private long quietSeconds;
+
+    // 持續有新通知時最多等待多久
+    @Value("${app.order-digest.max-wait-seconds:900}")
+    private long maxWaitSeconds;
+
+    @Value("${app.order-digest.users-per-run:200}")
+    private int usersPerRun;
+
+    @Scheduled(fixedDelayString = "${app.order-digest.interval-ms:30000}")
+    public void run() {
+        if (!schedulerLeaseService.tryAcquire(LEASE_NAME, Duration.ofMinutes(5))) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> userIds = notificationRepository.findUsersReadyForDigest(
+                now.minusSeconds(quietSeconds), now.minusSeconds(maxWaitSeconds), usersPerRun);
+        for (Long userId : userIds) {
+            try {
+                orderNotificationService.sendDigest(userId);
+            } catch (RuntimeException e) {
+                log.error("Order status digest failed: userId={}", userId, e);
+            }
+        }
+    }
+}
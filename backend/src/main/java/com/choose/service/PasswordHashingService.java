@@ -0,0 +1,151 @@
+package com.choose.service;
+
+import com.choose.common.ServiceBusyException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * 密碼雜湊與驗證
+ * BCrypt 在獨立且有上限的執行緒池執行，避免登入尖峰佔滿 Tomcat 工作執行緒；
+ * 佇列已滿或等待逾時時拋出 ServiceBusyException（503）
+ * <p>
+ * 請求端應使用 *Async 並回傳 CompletableFuture，計算期間不佔用 Tomcat 執行緒；
+ * 呼叫端不要在交易中等待結果，否則 BCrypt 計算期間會一直佔用資料庫連線
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PasswordHashingService {
+
+    private static final long RETRY_AFTER_SECONDS = 2;
+
+    private final PasswordEncoder passwordEncoder;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.password.pool-size:0}")
+    private int poolSize; // 0 = CPU 核心數
+
+    @Value("${app.password.queue-capacity:64}")
+    private int queueCapacity;
+
+    @Value("${app.password.wait-timeout-ms:5000}")
+    private long waitTimeoutMillis;
+
+    private ThreadPoolExecutor rawExecutor;
+    private ExecutorService executor;
+    private Counter rejectedCounter;
+
+    @PostConstruct
+    void init() {
+        int threads = poolSize > 0 ? poolSize : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadCount = new AtomicInteger();
+        rawExecutor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread thread = new Thread(r, "password-hash-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        executor = ExecutorServiceMetrics.monitor(meterRegistry, rawExecutor, "password.hashing");
+        rejectedCounter = Counter.builder("password.hashing.rejected")
+                .description("Password hashing tasks rejected because the executor was saturated")
+                .register(meterRegistry);
+        log.info("Password hashing executor started: threads={}, queueCapacity={}", threads, queueCapacity);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        rawExecutor.shutdown();
+    }
+
+    public CompletableFuture<String> encodeAsync(String rawPassword) {
+        return submit(() -> passwordEncoder.encode(rawPassword));
+    }
+
+    public CompletableFuture<Boolean> matchesAsync(String rawPassword, String encodedPassword) {
+        if (rawPassword == null || encodedPassword == null) {
+            return CompletableFuture.completedFuture(false);
+        }
+        return submit(() -> passwordEncoder.matches(rawPassword, encodedPassword));
+    }
+
+    public String encode(String rawPassword) {
+        return await(encodeAsync(rawPassword));
+    }
+
+    public boolean matches(String rawPassword, String encodedPassword) {
+        return await(matchesAsync(rawPassword, encodedPassword));
+    }
+
+    /**
+     * 既有雜湊的 cost 是否低於目前設定（只解析字串，不需排入執行緒池）
+     */
+    public boolean needsRehash(String encodedPassword) {
+        return encodedPassword != null && passwordEncoder.upgradeEncoding(encodedPassword);
+    }
+
+    private <T> CompletableFuture<T> submit(Supplier<T> task) {
+        CompletableFuture<T> future;
+        try {
+            future = CompletableFuture.supplyAsync(task, executor);
+        } catch (RejectedExecutionException e) {
+            rejectedCounter.increment();
+            log.warn("Password hashing rejected: executor saturated");
+            return CompletableFuture.failedFuture(busy());
+        }
+
+        // 逾時後仍在佇列中的工作不會執行（CompletableFuture 已完成）
+        return future.orTimeout(waitTimeoutMillis, TimeUnit.MILLISECONDS)
+                .exceptionally(e -> {
+                    Throwable cause = unwrap(e);
+                    if (cause instanceof TimeoutException) {
+                        rejectedCounter.increment();
+                        log.warn("Password hashing timed out after {}ms", waitTimeoutMillis);
+                        throw busy();
+                    }
+                    if (cause instanceof RuntimeException runtimeException) {
+                        throw runtimeException;
+                    }
+                    throw new IllegalStateException("Password hashing failed", cause);
+                });
+    }
+
+    private static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (unwrap(e) instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw e;
+        }
+    }
+
+    private static Throwable unwrap(Throwable e) {
+        return e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+    }
+
+    private static ServiceBusyException busy() {
+        return new ServiceBusyException("系統忙碌中，請稍後再試", RETRY_AFTER_SECONDS);
+    }
+}
@@ -1,11 +1,13 @@
 package com.choose.service;
 
+import com.choose.event.VariantRestockedEvent;
 import com.choose.model.Product;
 import com.choose.model.ProductVariant;
 import com.choose.repository.ProductRepository;
 import com.choose.repository.ProductVariantRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -18,6 +20,8 @@ import java.util.Optional;
 public class ProductService {
     private final ProductRepository productRepository;
     private final ProductVariantRepository productVariantRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ImageAssetService imageAssetService;
 
     public List<Product> getAllListedProducts() {
         return productRepository.findByIsListedTrue();
@@ -38,6 +42,7 @@ public class ProductService {
     @Transactional
     public Product createProduct(Product product) {
         log.info("Creating product: name={}", product.getName());
+        product.setImageSrcset(imageAssetService.srcsetForUrl(product.getImageUrl()));
         Product saved = productRepository.save(product);
         log.info("Product created: productId={}, name={}", saved.getProductId(), saved.getName());
         return saved;
@@ -62,8 +67,9 @@ public class ProductService {
         if (updatedProduct.getPrice() != null) {
             product.setPrice(updatedProduct.getPrice());
         }
-        if (updatedProduct.getImageUrl() != null) {
+        if (updatedProduct.getImageUrl() != null && !updatedProduct.getImageUrl().equals(product.getImageUrl())) {
             product.setImageUrl(updatedProduct.getImageUrl());
+            product.setImageSrcset(imageAssetService.srcsetForUrl(updatedProduct.getImageUrl()));
         }
         if (updatedProduct.getIsListed() != null) {
             product.setIsListed(updatedProduct.getIsListed());
@@ -76,6 +82,26 @@ public class ProductService {
         return saved;
     }
 
+    /**
+     * 將已上傳的圖片加到商品：未指定顏色時設為主圖，否則加到該顏色的圖片列表
+     */
+    @Transactional
+    public Product attachImage(Long productId, String color, String url, String srcset) {
+        Product product = productRepository.findByIdForUpdate(productId)
+                .orElseThrow(() -> new IllegalArgumentException("Product not found"));
+
+        if (color == null || color.isBlank()) {
+            product.setImageUrl(url);
+            product.setImageSrcset(srcset);
+        } else {
+            product.addColorImage(color.trim(), url);
+        }
+
+        Product saved = productRepository.save(product);
+        log.info("Image attached to product: productId={}, color={}, url={}", productId, color, url);
+        return saved;
+    }
+
     public List<ProductVariant> getProductVariants(Long productId) {
         return productVariantRepository.findByProductProductId(productId);
     }
@@ -163,6 +189,7 @@ public class ProductService {
         
         log.info("Stock updated: variantId={}, sku={}, oldStock={}, newStock={}", 
                 variantId, variant.getSkuCode(), oldStock, stock);
+        publishIfRestocked(variantId, oldStock, stock);
         return saved;
     }
 
@@ -182,6 +209,7 @@ public class ProductService {
         if (updatedVariant.getSize() != null) {
             variant.setSize(updatedVariant.getSize());
         }
+        int oldStock = variant.getStock();
         if (updatedVariant.getStock() != null) {
             if (updatedVariant.getStock() < 0) {
                 throw new IllegalArgumentException("Stock cannot be negative");
@@ -194,9 +222,17 @@ public class ProductService {
         
         ProductVariant saved = productVariantRepository.save(variant);
         log.info("Product variant updated: variantId={}, sku={}", variantId, saved.getSkuCode());
+        publishIfRestocked(variantId, oldStock, saved.getStock());
         return saved;
     }
 
+    // 庫存由 0 變為正數時通知到貨訂閱者（交易提交後才會處理）
+    private void publishIfRestocked(Long variantId, int oldStock, int newStock) {
+        if (oldStock <= 0 && newStock > 0) {
+            eventPublisher.publishEvent(new VariantRestockedEvent(variantId, newStock));
+        }
+    }
+
     @Transactional
     public void deleteProductVariant(Long variantId) {
         log.info("Deleting product variant: variantId={}", variantId);
@@ -0,0 +1,145 @@
+package com.choose.service;
+
+import com.choose.event.UserChangedEvent;
+import com.choose.model.RefreshToken;
+import com.choose.model.User;
+import com.choose.repository.RefreshTokenRepository;
+import com.choose.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Hibernate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Refresh token 管理：每次使用即輪替，重複使用舊 token 時撤銷整個 family
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RefreshTokenService {
+
+    // 多個分頁幾乎同時刷新時，剛被輪替的 token 在此時間內再次出現不視為竊用
+    private static final long REUSE_GRACE_SECONDS = 10;
+
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final UserRepository userRepository;
+    private final SecureRandom secureRandom = new SecureRandom();
+
+    @Value("${jwt.refresh-expiration:1209600000}")
+    private Long refreshExpiration; // 14 days in milliseconds
+
+    public long getRefreshExpiration() {
+        return refreshExpiration;
+    }
+
+    /**
+     * 登入時簽發新的 refresh token（新的 family）
+     * @return 原始 token（僅回傳給用戶端，資料庫只存雜湊）
+     */
+    @Transactional
+    public String issue(Long userId) {
+        return create(userRepository.getReferenceById(userId), UUID.randomUUID().toString());
+    }
+
+    /**
+     * 以 refresh token 換發新 token；無效、過期或偵測到重複使用時回傳 empty
+     */
+    @Transactional
+    public Optional<RotatedToken> rotate(String rawToken) {
+        if (rawToken == null || rawToken.isBlank()) {
+            return Optional.empty();
+        }
+        RefreshToken token = refreshTokenRepository.findByTokenHash(hashToken(rawToken)).orElse(null);
+        if (token == null || token.isExpired()) {
+            return Optional.empty();
+        }
+
+        User user = token.getUser();
+        Hibernate.initialize(user);
+        if (Boolean.TRUE.equals(user.getIsDeleted())) {
+            return Optional.empty();
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        if (token.getRevokedAt() != null) {
+            // 寬限期只適用於因輪替被取代的 token；登出、變更密碼或偵測竊用的撤銷一律視為重複使用
+            if (token.getReplacedAt() != null
+                    && token.getReplacedAt().isAfter(now.minusSeconds(REUSE_GRACE_SECONDS))) {
+                return Optional.of(new RotatedToken(user, create(user, token.getFamilyId())));
+            }
+            int revoked = refreshTokenRepository.revokeFamily(token.getFamilyId(), now);
+            log.warn("Refresh token reuse detected, family revoked: userId={}, familyId={}, revoked={}",
+                    user.getUserId(), token.getFamilyId(), revoked);
+            return Optional.empty();
+        }
+
+        token.setRevokedAt(now);
+        token.setReplacedAt(now);
+        return Optional.of(new RotatedToken(user, create(user, token.getFamilyId())));
+    }
+
+    /**
+     * 登出時撤銷該 token 所屬的整個 family
+     */
+    @Transactional
+    public void revoke(String rawToken) {
+        if (rawToken == null || rawToken.isBlank()) {
+            return;
+        }
+        refreshTokenRepository.findByTokenHash(hashToken(rawToken))
+                .ifPresent(token -> refreshTokenRepository.revokeFamily(token.getFamilyId(), LocalDateTime.now()));
+    }
+
+    /**
+     * 變更密碼、刪除帳號時撤銷該使用者所有 refresh token
+     */
+    @EventListener
+    @Transactional
+    public void onUserChanged(UserChangedEvent event) {
+        if (event.getType() == UserChangedEvent.Type.PASSWORD_CHANGED
+                || event.getType() == UserChangedEvent.Type.DELETED) {
+            int revoked = refreshTokenRepository.revokeAllByUserId(event.getUserId(), LocalDateTime.now());
+            log.info("Refresh tokens revoked: userId={}, count={}, reason={}", event.getUserId(), revoked, event.getType());
+        }
+    }
+
+    private String create(User user, String familyId) {
+        byte[] bytes = new byte[32];
+        secureRandom.nextBytes(bytes);
+        String rawToken = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+
+        RefreshToken token = new RefreshToken();
+        token.setTokenHash(hashToken(rawToken));
+        token.setUser(user);
+        token.setFamilyId(familyId);
+        token.setExpiresAt(LocalDateTime.now().plus(Duration.ofMillis(refreshExpiration)));
+        refreshTokenRepository.save(token);
+        return rawToken;
+    }
+
+    private String hashToken(String rawToken) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(rawToken.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    public record RotatedToken(User user, String refreshToken) {
+    }
+}
@@ -1,5 +1,7 @@
 package com.choose.service;
 
+import com.choose.common.CompiledTemplate;
+import com.choose.model.ContactMessage;
 import com.choose.model.ReplyTemplate;
 import com.choose.repository.ReplyTemplateRepository;
 import lombok.RequiredArgsConstructor;
@@ -7,14 +9,22 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class ReplyTemplateService {
     private final ReplyTemplateRepository templateRepository;
+    private final InquirySuggestionService inquirySuggestionService;
+
+    // 編譯後的模板，以 updatedAt 判斷是否需要重新編譯
+    private final Map<Long, CachedTemplate> compiledTemplates = new ConcurrentHashMap<>();
 
     public List<ReplyTemplate> getAllTemplates() {
         return templateRepository.findAllByOrderByCreatedAtDesc();
@@ -24,6 +34,23 @@ public class ReplyTemplateService {
         return templateRepository.findById(templateId);
     }
 
+    /**
+     * 以客服訊息套用模板變數：{name}、{subject}、{reply}（{reply} 留空給管理員填寫）
+     */
+    public String renderForInquiry(Long templateId, ContactMessage inquiry) {
+        ReplyTemplate template = templateRepository.findById(templateId)
+                .orElseThrow(() -> new IllegalArgumentException("Template not found"));
+        CachedTemplate cached = compiledTemplates.get(templateId);
+        if (cached == null || !Objects.equals(cached.updatedAt(), template.getUpdatedAt())) {
+            cached = new CachedTemplate(template.getUpdatedAt(), CompiledTemplate.compile(template.getContent()));
+            compiledTemplates.put(templateId, cached);
+        }
+        return cached.compiled().render(Map.of(
+                "name", inquiry.getName() != null ? inquiry.getName() : "",
+                "subject", inquiry.getSubject() != null ? inquiry.getSubject() : "您的詢問",
+                "reply", ""));
+    }
+
     @Transactional
     public ReplyTemplate createTemplate(String name, String content, Long createdBy) {
         log.info("Creating template: name={}", name);
@@ -31,7 +58,9 @@ public class ReplyTemplateService {
         template.setName(name);
         template.setContent(content);
         template.setCreatedBy(createdBy);
-        return templateRepository.save(template);
+        ReplyTemplate saved = templateRepository.save(template);
+        inquirySuggestionService.indexTemplate(saved);
+        return saved;
     }
 
     @Transactional
@@ -41,7 +70,9 @@ public class ReplyTemplateService {
                 .orElseThrow(() -> new IllegalArgumentException("Template not found"));
         template.setName(name);
         template.setContent(content);
-        return templateRepository.save(template);
+        ReplyTemplate saved = templateRepository.save(template);
+        inquirySuggestionService.indexTemplate(saved);
+        return saved;
     }
 
     @Transactional
@@ -51,5 +82,10 @@ public class ReplyTemplateService {
             throw new IllegalArgumentException("Template not found");
         }
         templateRepository.deleteById(templateId);
+        compiledTemplates.remove(templateId);
+        inquirySuggestionService.removeTemplate(templateId);
+    }
+
+    private record CachedTemplate(LocalDateTime updatedAt, CompiledTemplate compiled) {
     }
 }
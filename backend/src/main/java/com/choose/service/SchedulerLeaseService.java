@@ -0,0 +1,54 @@
+package com.choose.service;
+
+import com.choose.repository.SchedulerLeaseRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * 以資料庫租約選出排程工作的執行節點
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SchedulerLeaseService {
+
+    private final SchedulerLeaseRepository schedulerLeaseRepository;
+
+    // 同一主機上的多個程序也要能區分
+    private final String ownerId = truncate(hostName(), 80) + ":" + UUID.randomUUID().toString().substring(0, 8);
+
+    /**
+     * 嘗試取得（或續約）指定工作的租約
+     * @return true 表示本節點可以執行
+     */
+    public boolean tryAcquire(String name, Duration leaseDuration) {
+        long seconds = Math.max(1, leaseDuration.toSeconds());
+        if (schedulerLeaseRepository.tryAcquire(name, ownerId, seconds) > 0) {
+            return true;
+        }
+        // 第一次執行時尚無資料列
+        return schedulerLeaseRepository.tryInsert(name, ownerId, seconds) > 0;
+    }
+
+    public String getOwnerId() {
+        return ownerId;
+    }
+
+    private static String truncate(String value, int maxLength) {
+        return value.length() > maxLength ? value.substring(0, maxLength) : value;
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return "unknown-host";
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.choose.service;
+
+import com.choose.model.IdSequence;
+import com.choose.repository.IdSequenceRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.function.LongSupplier;
+
+/**
+ * 從 id_sequences 計數器保留一段連續號碼
+ * 以獨立交易（REQUIRES_NEW）執行並立即提交，計數器列只在保留當下短暫鎖定，
+ * 不會被呼叫端的業務交易持有到結束
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SequenceBlockAllocator {
+
+    private final IdSequenceRepository idSequenceRepository;
+
+    /**
+     * 保留 blockSize 個號碼
+     * @param initialValue 計數器尚不存在時的起始值（只在第一次使用時呼叫）
+     * @return 區段的第一個號碼，區段為 [first, first + blockSize)
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public long reserve(String name, int blockSize, LongSupplier initialValue) {
+        IdSequence sequence = idSequenceRepository.findByNameForUpdate(name).orElse(null);
+        if (sequence == null) {
+            idSequenceRepository.insertIfAbsent(name, initialValue.getAsLong());
+            sequence = idSequenceRepository.findByNameForUpdate(name)
+                    .orElseThrow(() -> new IllegalStateException("Sequence not initialized: " + name));
+        }
+
+        long first = sequence.getNextValue();
+        sequence.setNextValue(first + blockSize);
+        log.info("Sequence block reserved: name={}, from={}, to={}", name, first, first + blockSize - 1);
+        return first;
+    }
+}
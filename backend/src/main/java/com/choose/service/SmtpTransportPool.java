@@ -0,0 +1,177 @@
+package com.choose.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Session;
+import jakarta.mail.Transport;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 已驗證的 SMTP 連線池
+ * 連線建立（TCP + STARTTLS + AUTH）只在第一次借用或連線失效時發生，之後多封郵件共用同一條連線；
+ * 每條連線寄送一定數量後重建，閒置過久則關閉
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SmtpTransportPool {
+
+    private final JavaMailSender javaMailSender;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.mail.pool.max-connections:4}")
+    private int maxConnections;
+
+    // 供應商通常限制單一連線可寄送的數量
+    @Value("${app.mail.pool.max-messages-per-connection:100}")
+    private int maxMessagesPerConnection;
+
+    @Value("${app.mail.pool.idle-timeout-seconds:60}")
+    private long idleTimeoutSeconds;
+
+    @Value("${app.mail.pool.borrow-timeout-ms:30000}")
+    private long borrowTimeoutMillis;
+
+    private JavaMailSenderImpl mailSender;
+    private Semaphore permits;
+    private final BlockingDeque<PooledTransport> idle = new LinkedBlockingDeque<>();
+
+    @PostConstruct
+    void init() {
+        mailSender = (JavaMailSenderImpl) javaMailSender;
+        permits = new Semaphore(maxConnections, true);
+        Gauge.builder("mail.smtp.connections.idle", idle, BlockingDeque::size)
+                .description("Idle pooled SMTP connections")
+                .register(meterRegistry);
+        Gauge.builder("mail.smtp.connections.active", this, pool -> pool.maxConnections - pool.permits.availablePermits())
+                .description("SMTP connections currently borrowed")
+                .register(meterRegistry);
+    }
+
+    public Session getSession() {
+        return mailSender.getSession();
+    }
+
+    /**
+     * 借用一條已連線的 transport；用完必須呼叫 release
+     */
+    public PooledTransport borrow() throws MessagingException {
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new MessagingException("Timed out waiting for an SMTP connection");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MessagingException("Interrupted while waiting for an SMTP connection", e);
+        }
+
+        try {
+            PooledTransport pooled;
+            while ((pooled = idle.pollFirst()) != null) {
+                if (pooled.transport.isConnected() && pooled.messagesSent < maxMessagesPerConnection) {
+                    return pooled;
+                }
+                pooled.close();
+            }
+            return connect();
+        } catch (MessagingException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * 歸還連線；healthy = false（例如寄送時連線中斷）時直接關閉
+     */
+    public void release(PooledTransport pooled, boolean healthy) {
+        try {
+            if (healthy && pooled.transport.isConnected() && pooled.messagesSent < maxMessagesPerConnection) {
+                pooled.lastUsedAt = System.nanoTime();
+                idle.offerFirst(pooled);
+            } else {
+                pooled.close();
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.mail.pool.evict-interval-ms:30000}")
+    public void evictIdle() {
+        long cutoff = System.nanoTime() - TimeUnit.SECONDS.toNanos(idleTimeoutSeconds);
+        List<PooledTransport> expired = new ArrayList<>();
+        idle.removeIf(pooled -> {
+            if (pooled.lastUsedAt < cutoff) {
+                expired.add(pooled);
+                return true;
+            }
+            return false;
+        });
+        expired.forEach(PooledTransport::close);
+        if (!expired.isEmpty()) {
+            log.debug("Idle SMTP connections closed: {}", expired.size());
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        PooledTransport pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            pooled.close();
+        }
+    }
+
+    private PooledTransport connect() throws MessagingException {
+        Transport transport = mailSender.getSession().getTransport(mailSender.getProtocol());
+        transport.connect(mailSender.getHost(), mailSender.getPort(), mailSender.getUsername(), mailSender.getPassword());
+        meterRegistry.counter("mail.smtp.connections.opened").increment();
+        log.debug("SMTP connection opened: host={}", mailSender.getHost());
+        return new PooledTransport(transport);
+    }
+
+    public static class PooledTransport {
+        private final Transport transport;
+        private int messagesSent;
+        private long lastUsedAt = System.nanoTime();
+
+        PooledTransport(Transport transport) {
+            this.transport = transport;
+        }
+
+        public Transport getTransport() {
+            return transport;
+        }
+
+        public boolean isConnected() {
+            return transport.isConnected();
+        }
+
+        public void recordSent() {
+            messagesSent++;
+        }
+
+        void close() {
+            try {
+                transport.close();
+            } catch (MessagingException e) {
+                // 連線可能已由伺服器關閉
+            }
+        }
+    }
+}
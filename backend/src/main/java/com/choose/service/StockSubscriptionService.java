@@ -0,0 +1,114 @@
+package com.choose.service;
+
+import com.choose.model.ProductVariant;
+import com.choose.model.StockSubscription;
+import com.choose.model.User;
+import com.choose.repository.ProductVariantRepository;
+import com.choose.repository.StockSubscriptionRepository;
+import com.choose.repository.UserRepository;
+import com.choose.service.MailTemplateService.MailTemplate;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 到貨通知：訂閱管理與分批寄送
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StockSubscriptionService {
+
+    private final StockSubscriptionRepository subscriptionRepository;
+    private final ProductVariantRepository productVariantRepository;
+    private final UserRepository userRepository;
+    private final MailTemplateService mailTemplateService;
+    private final MailOutboxService mailOutboxService;
+
+    @Value("${app.frontend-url:https://choose.zeabur.app}")
+    private String frontendUrl;
+
+    /**
+     * 訂閱到貨通知；已通知過的訂閱會重新啟用
+     */
+    @Transactional
+    public StockSubscription subscribe(Long variantId, Long userId) {
+        ProductVariant variant = productVariantRepository.findById(variantId)
+                .orElseThrow(() -> new IllegalArgumentException("Product variant not found"));
+        if (variant.getStock() > 0) {
+            throw new IllegalArgumentException("Product variant is in stock");
+        }
+
+        StockSubscription subscription = subscriptionRepository.findByVariantIdAndUserId(variantId, userId)
+                .orElseGet(() -> {
+                    StockSubscription created = new StockSubscription();
+                    created.setVariantId(variantId);
+                    created.setUserId(userId);
+                    return created;
+                });
+        subscription.setNotifiedAt(null);
+        return subscriptionRepository.save(subscription);
+    }
+
+    @Transactional
+    public void unsubscribe(Long variantId, Long userId) {
+        subscriptionRepository.findByVariantIdAndUserId(variantId, userId)
+                .ifPresent(subscriptionRepository::delete);
+    }
+
+    /**
+     * 處理一批待通知訂閱：寫入 outbox 並標記已通知（同一交易）
+     * @return 本批最後一筆 subscription_id；沒有資料或已再度缺貨時回傳 null
+     */
+    @Transactional
+    public Long notifyNextChunk(Long variantId, long afterId, int chunkSize) {
+        ProductVariant variant = productVariantRepository.findById(variantId).orElse(null);
+        // 寄送途中又賣完：剩下的訂閱保留到下次補貨
+        if (variant == null || variant.getStock() <= 0) {
+            return null;
+        }
+
+        List<StockSubscription> chunk = subscriptionRepository.lockPendingPage(variantId, afterId, chunkSize);
+        if (chunk.isEmpty()) {
+            return null;
+        }
+
+        Map<Long, User> users = userRepository.findAllById(
+                        chunk.stream().map(StockSubscription::getUserId).distinct().toList())
+                .stream()
+                .collect(Collectors.toMap(User::getUserId, Function.identity()));
+
+        String productName = variant.getProduct().getName();
+        String variantLabel = variant.getColor() + " / " + variant.getSize();
+        String productUrl = frontendUrl + "/product/" + variant.getProductId();
+
+        int queued = 0;
+        for (StockSubscription subscription : chunk) {
+            User user = users.get(subscription.getUserId());
+            if (user == null || Boolean.TRUE.equals(user.getIsDeleted())) {
+                continue;
+            }
+            MailTemplateService.RenderedMail mail = mailTemplateService.render(MailTemplate.BACK_IN_STOCK, Map.of(
+                    "name", user.getName(),
+                    "product", productName,
+                    "variant", variantLabel,
+                    "url", productUrl));
+            mailOutboxService.enqueue(user.getEmail(), mail.subject(), mail.text(), mail.html(),
+                    MailTemplate.BACK_IN_STOCK.name());
+            queued++;
+        }
+
+        subscriptionRepository.markNotified(
+                chunk.stream().map(StockSubscription::getSubscriptionId).toList(), LocalDateTime.now());
+        log.info("Back-in-stock chunk queued: variantId={}, subscriptions={}, mails={}", variantId, chunk.size(), queued);
+        return chunk.get(chunk.size() - 1).getSubscriptionId();
+    }
+}
@@ -0,0 +1,55 @@
+package com.choose.service;
+
+import com.choose.repository.ClaimsRevocationRepository;
+import com.choose.repository.RefreshTokenRepository;
+import com.choose.repository.RevokedTokenRepository;
+import com.choose.repository.VerificationTokenRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * 定期清除過期的 token 資料列（以 BatchPurger 分批刪除）；
+ * 多節點部署時透過資料庫租約只由一個節點執行
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TokenCleanupService {
+
+    private static final String LEASE_NAME = "token-cleanup";
+
+    private final SchedulerLeaseService schedulerLeaseService;
+    private final BatchPurger batchPurger;
+    private final VerificationTokenRepository verificationTokenRepository;
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final RevokedTokenRepository revokedTokenRepository;
+    private final ClaimsRevocationRepository claimsRevocationRepository;
+
+    // access token 最長效期；超過後 claims 失效記錄已無作用
+    @Value("${jwt.expiration:900000}")
+    private long jwtExpirationMillis;
+
+    @Value("${app.cleanup.lease-seconds:600}")
+    private long leaseSeconds;
+
+    @Scheduled(cron = "${app.cleanup.token-cron:0 17 * * * *}")
+    public void purgeExpiredTokens() {
+        if (!schedulerLeaseService.tryAcquire(LEASE_NAME, Duration.ofSeconds(leaseSeconds))) {
+            log.debug("Token cleanup skipped: lease held by another node");
+            return;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        batchPurger.purge("verification_tokens", now, verificationTokenRepository::deleteExpiredBatch);
+        batchPurger.purge("refresh_tokens", now, refreshTokenRepository::deleteExpiredBatch);
+        batchPurger.purge("revoked_tokens", now, revokedTokenRepository::deleteExpiredBatch);
+        batchPurger.purge("claims_revocations", now.minus(Duration.ofMillis(jwtExpirationMillis)),
+                claimsRevocationRepository::deleteStaleBefore);
+    }
+}
@@ -1,25 +1,36 @@
 package com.choose.service;
 
+import com.choose.event.UserChangedEvent;
 import com.choose.model.User;
+import com.choose.model.VerificationToken;
 import com.choose.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.security.SecureRandom;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class UserService {
     private final UserRepository userRepository;
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordHashingService passwordHashingService;
+    private final EmailTokenService emailTokenService;
+    private final ApplicationEventPublisher eventPublisher;
 
-    @Transactional
+    @Value("${jwt.stateless-auth.enabled:false}")
+    private boolean statelessAuth;
+
+    /**
+     * 不開啟交易：BCrypt 計算期間不佔用資料庫連線（save 本身有交易）
+     */
     public User register(User user) {
         log.info("Registering new user: email={}", user.getEmail());
         
@@ -28,7 +39,7 @@ public class UserService {
             throw new IllegalArgumentException("Email already exists");
         }
         
-        user.setPassword(passwordEncoder.encode(user.getPassword()));
+        user.setPassword(passwordHashingService.encode(user.getPassword()));
         User saved = userRepository.save(user);
         
         log.info("User registered successfully: userId={}, email={}", saved.getUserId(), saved.getEmail());
@@ -50,9 +61,9 @@ public class UserService {
 
     /**
      * 簡化註冊（不需密碼，系統自動產生）
+     * 密碼雜湊在雜湊執行緒池完成後才寫入資料庫，等待期間不佔用請求執行緒與資料庫連線
      */
-    @Transactional
-    public User registerSimple(String email, String name) {
+    public CompletableFuture<User> registerSimple(String email, String name) {
         log.info("Simple registration: email={}", email);
         
         if (userRepository.existsByEmail(email)) {
@@ -60,34 +71,84 @@ public class UserService {
             throw new IllegalArgumentException("Email already exists");
         }
         
-        User user = new User();
-        user.setEmail(email);
-        user.setName(name);
-        user.setPassword(passwordEncoder.encode(generateRandomPassword()));
-        user.setEmailVerified(false);
-        
-        User saved = userRepository.save(user);
-        log.info("User registered (simple) successfully: userId={}, email={}", saved.getUserId(), saved.getEmail());
-        return saved;
+        return passwordHashingService.encodeAsync(generateRandomPassword()).thenApply(passwordHash -> {
+            User user = new User();
+            user.setEmail(email);
+            user.setName(name);
+            user.setPassword(passwordHash);
+            user.setEmailVerified(false);
+
+            User saved = userRepository.save(user);
+            log.info("User registered (simple) successfully: userId={}, email={}", saved.getUserId(), saved.getEmail());
+            return saved;
+        });
     }
 
     public Optional<User> findByEmail(String email) {
         return userRepository.findByEmail(email);
     }
 
+    /**
+     * 以 email / 密碼驗證使用者；成功且雜湊 cost 已過時則順便重新雜湊
+     * 不開啟交易，避免 BCrypt 計算期間佔用資料庫連線
+     */
+    public CompletableFuture<Optional<User>> authenticate(String email, String rawPassword) {
+        User user = userRepository.findByEmail(email).orElse(null);
+        if (user == null) {
+            return CompletableFuture.completedFuture(Optional.empty());
+        }
+
+        return passwordHashingService.matchesAsync(rawPassword, user.getPassword()).thenCompose(matched -> {
+            if (!matched) {
+                return CompletableFuture.completedFuture(Optional.empty());
+            }
+            if (!passwordHashingService.needsRehash(user.getPassword())) {
+                return CompletableFuture.completedFuture(Optional.of(user));
+            }
+            return passwordHashingService.encodeAsync(rawPassword).handle((newHash, e) -> {
+                if (e != null) {
+                    // 重新雜湊失敗不影響登入，下次登入再試
+                    log.warn("Password rehash skipped: userId={}, reason={}", user.getUserId(), e.getMessage());
+                } else if (userRepository.updatePasswordHash(user.getUserId(), user.getPassword(), newHash) > 0) {
+                    user.setPassword(newHash);
+                    log.info("Password rehashed with current strength: userId={}", user.getUserId());
+                }
+                return Optional.of(user);
+            });
+        });
+    }
+
     public Optional<User> findById(Long userId) {
         return userRepository.findById(userId);
     }
 
+    /**
+     * 取得目前登入者的完整資料
+     * stateless 驗證模式下 principal 只含 JWT claims（userId / email / role），需要時才查詢資料庫
+     */
+    public User loadCurrentUser(User principal) {
+        if (!statelessAuth) {
+            return principal;
+        }
+        return userRepository.findById(principal.getUserId())
+                .orElseThrow(() -> new IllegalArgumentException("User not found"));
+    }
+
     public List<User> findAll() {
         log.info("Fetching all users");
         return userRepository.findAll();
     }
 
-    @Transactional
+    /**
+     * 不開啟交易：新密碼先在交易外雜湊，save 本身有交易
+     */
     public User updateUser(Long userId, User updatedUser) {
         log.info("Updating user profile: userId={}", userId);
         
+        String newPasswordHash = updatedUser.getPassword() != null && !updatedUser.getPassword().isEmpty()
+                ? passwordHashingService.encode(updatedUser.getPassword())
+                : null;
+
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> {
                     log.error("User update failed: User not found, userId={}", userId);
@@ -100,20 +161,22 @@ public class UserService {
         if (updatedUser.getPhone() != null) {
             user.setPhone(updatedUser.getPhone());
         }
-        if (updatedUser.getPassword() != null && !updatedUser.getPassword().isEmpty()) {
-            user.setPassword(passwordEncoder.encode(updatedUser.getPassword()));
+        if (newPasswordHash != null) {
+            user.setPassword(newPasswordHash);
             log.info("Password updated for user: userId={}", userId);
         }
         
         User saved = userRepository.save(user);
+        eventPublisher.publishEvent(
+                new UserChangedEvent(userId, user.getEmail(), UserChangedEvent.Type.PROFILE_UPDATED));
         log.info("User profile updated: userId={}", userId);
         return saved;
     }
 
     /**
      * Change password with current password verification
+     * 不開啟交易：比對與雜湊都在交易外完成，最後以舊雜湊為條件更新
      */
-    @Transactional
     public void changePassword(Long userId, String currentPassword, String newPassword) {
         log.info("Attempting password change for userId={}", userId);
 
@@ -124,7 +187,7 @@ public class UserService {
                 });
 
         // Verify current password
-        if (!passwordEncoder.matches(currentPassword, user.getPassword())) {
+        if (!passwordHashingService.matches(currentPassword, user.getPassword())) {
             log.warn("Password change failed: Incorrect current password, userId={}", userId);
             throw new IllegalArgumentException("目前密碼不正確");
         }
@@ -135,12 +198,42 @@ public class UserService {
             throw new IllegalArgumentException("新密碼長度至少需要 6 個字元");
         }
 
-        // Update password
-        user.setPassword(passwordEncoder.encode(newPassword));
-        userRepository.save(user);
+        // Update password（期間密碼已被其他請求變更時不覆蓋）
+        String newHash = passwordHashingService.encode(newPassword);
+        if (userRepository.updatePasswordHash(userId, user.getPassword(), newHash) == 0) {
+            log.warn("Password change failed: Password changed concurrently, userId={}", userId);
+            throw new IllegalArgumentException("密碼已被變更，請重新操作");
+        }
+        eventPublisher.publishEvent(
+                new UserChangedEvent(userId, user.getEmail(), UserChangedEvent.Type.PASSWORD_CHANGED));
         log.info("Password changed successfully for userId={}", userId);
     }
 
+    /**
+     * 變更使用者角色（管理員操作）
+     */
+    @Transactional
+    public User updateRole(Long userId, User.Role role) {
+        log.info("Updating user role: userId={}, newRole={}", userId, role);
+
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> {
+                    log.error("Role update failed: User not found, userId={}", userId);
+                    return new IllegalArgumentException("User not found");
+                });
+
+        User.Role oldRole = user.getRole();
+        user.setRole(role);
+        User saved = userRepository.save(user);
+
+        if (oldRole != role) {
+            eventPublisher.publishEvent(
+                    new UserChangedEvent(userId, user.getEmail(), UserChangedEvent.Type.ROLE_CHANGED));
+        }
+        log.info("User role updated: userId={}, oldRole={}, newRole={}", userId, oldRole, role);
+        return saved;
+    }
+
     /**
      * 驗證信箱
      */
@@ -151,39 +244,77 @@ public class UserService {
                 .orElseThrow(() -> new IllegalArgumentException("User not found"));
         user.setEmailVerified(true);
         userRepository.save(user);
+        eventPublisher.publishEvent(
+                new UserChangedEvent(userId, user.getEmail(), UserChangedEvent.Type.EMAIL_VERIFIED));
         log.info("Email verified for userId={}", userId);
     }
 
+    /**
+     * 以驗證信連結驗證信箱
+     * token 的使用與信箱狀態在同一交易中提交，後續步驟失敗時 token 仍可再用
+     */
+    @Transactional
+    public Optional<User> verifyEmailWithToken(String token) {
+        Optional<User> user = emailTokenService.consume(token, VerificationToken.TokenType.EMAIL_VERIFY)
+                .flatMap(userRepository::findById);
+        user.ifPresent(u -> {
+            verifyEmail(u.getUserId());
+            u.setEmailVerified(true);
+        });
+        return user;
+    }
+
+    /**
+     * 以重設密碼連結重設密碼；token 與密碼在同一交易中提交
+     * @param passwordHash 已在交易外雜湊的新密碼
+     * @return token 無效或已使用時回傳 empty
+     */
+    @Transactional
+    public Optional<Long> resetPasswordWithToken(String token, String passwordHash) {
+        Optional<Long> userId = emailTokenService.consume(token, VerificationToken.TokenType.PASSWORD_RESET);
+        userId.ifPresent(id -> resetPassword(id, passwordHash));
+        return userId;
+    }
+
+    /**
+     * 以驗證信連結初次設定密碼；token 須屬於該使用者，與密碼在同一交易中提交
+     * @param passwordHash 已在交易外雜湊的新密碼
+     */
+    @Transactional
+    public boolean setPasswordWithToken(Long userId, String token, String passwordHash) {
+        if (emailTokenService.consume(token, VerificationToken.TokenType.EMAIL_VERIFY, userId).isEmpty()) {
+            return false;
+        }
+        setPassword(userId, passwordHash);
+        return true;
+    }
+
     /**
      * 重設密碼（無需驗證舊密碼，用於忘記密碼流程）
+     * @param passwordHash 已在交易外雜湊的新密碼
      */
     @Transactional
-    public void resetPassword(Long userId, String newPassword) {
+    public void resetPassword(Long userId, String passwordHash) {
         log.info("Resetting password for userId={}", userId);
         
-        if (newPassword == null || newPassword.length() < 6) {
-            throw new IllegalArgumentException("密碼長度至少需要 6 個字元");
-        }
-        
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new IllegalArgumentException("User not found"));
-        user.setPassword(passwordEncoder.encode(newPassword));
+        user.setPassword(passwordHash);
         user.setPasswordSet(true);
         userRepository.save(user);
+        eventPublisher.publishEvent(
+                new UserChangedEvent(userId, user.getEmail(), UserChangedEvent.Type.PASSWORD_CHANGED));
         log.info("Password reset successfully for userId={}", userId);
     }
 
     /**
      * 初次設定密碼（新用戶）
+     * @param passwordHash 已在交易外雜湊的新密碼
      */
     @Transactional
-    public void setPassword(Long userId, String newPassword) {
+    public void setPassword(Long userId, String passwordHash) {
         log.info("Setting password for first time: userId={}", userId);
         
-        if (newPassword == null || newPassword.length() < 6) {
-            throw new IllegalArgumentException("密碼長度至少需要 6 個字元");
-        }
-        
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new IllegalArgumentException("User not found"));
         
@@ -191,22 +322,32 @@ public class UserService {
             throw new IllegalArgumentException("您已設定過密碼");
         }
         
-        user.setPassword(passwordEncoder.encode(newPassword));
+        user.setPassword(passwordHash);
         user.setPasswordSet(true);
         userRepository.save(user);
+        eventPublisher.publishEvent(
+                new UserChangedEvent(userId, user.getEmail(), UserChangedEvent.Type.PASSWORD_CHANGED));
         log.info("Password set successfully for userId={}", userId);
     }
 
+    /**
+     * 驗證使用者目前的密碼（不開啟交易，BCrypt 計算期間不佔用資料庫連線）
+     */
+    public boolean verifyPassword(Long userId, String rawPassword) {
+        return userRepository.findById(userId)
+                .map(user -> passwordHashingService.matches(rawPassword, user.getPassword()))
+                .orElse(false);
+    }
+
     /**
      * 刪除使用者帳號（去識別化 + 軟刪除）
+     * 呼叫前須先以 verifyPassword 在交易外驗證密碼
      * @param userId 使用者 ID
-     * @param currentPassword 當前密碼（用於驗證身份）
      * @param orderService OrderService 用於檢查進行中訂單
      * @param cartService CartService 用於清空購物車
      */
     @Transactional
-    public void deleteUserAccount(Long userId, String currentPassword, 
-                                   OrderService orderService, CartService cartService) {
+    public void deleteUserAccount(Long userId, OrderService orderService, CartService cartService) {
         log.info("Attempting to delete user account: userId={}", userId);
 
         User user = userRepository.findById(userId)
@@ -215,11 +356,7 @@ public class UserService {
                     return new IllegalArgumentException("User not found");
                 });
 
-        // 1. 驗證密碼
-        if (user.getPassword() == null || !passwordEncoder.matches(currentPassword, user.getPassword())) {
-            log.warn("Account deletion failed: Incorrect password, userId={}", userId);
-            throw new IllegalArgumentException("密碼不正確");
-        }
+        // 1. 密碼已由呼叫端以 verifyPassword 驗證
 
         // 2. 檢查是否有進行中訂單
         if (orderService.hasActiveOrders(userId)) {
@@ -244,6 +381,8 @@ public class UserService {
         cartService.clearCart(userId);
 
         userRepository.save(user);
+        eventPublisher.publishEvent(
+                new UserChangedEvent(userId, originalEmail, UserChangedEvent.Type.DELETED));
         log.info("User account deleted successfully: userId={}, originalEmail={}", userId, originalEmail);
     }
 }
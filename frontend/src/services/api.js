@@ -30,6 +30,7 @@ function transformProduct(backend) {
     price: Number(backend.price),
     imageUrl: backend.image || "", // DTO 使用 image
     image: backend.image || "", // 保留原始欄位名稱供 ProductDetail 使用
+    imageSrcset: backend.imageSrcset || "", // 600w / 1200w 衍生圖
     colorImages: backend.colorImages || null, // 顏色對應圖片 Map
     isListed: backend.isListed ?? true,
     isFeatured: backend.isFeatured ?? false,
@@ -184,9 +185,14 @@ function transformUser(backend) {
   };
 }
 
+// 非同步圖片上傳的輪詢間隔與逾時
+const UPLOAD_POLL_INTERVAL_MS = 1000;
+const UPLOAD_POLL_TIMEOUT_MS = 120000;
+
 // ============================================
 // Product API
 // ============================================
+
 export const productApi = {
   /**
    * 取得所有商品
@@ -427,7 +433,7 @@ export const productApi = {
 
   /**
    * 上傳商品圖片
-   * POST /api/upload/image
+   * POST /api/upload/image/async，再輪詢 GET /api/upload/jobs/:uploadId
    * @param {File} file
    * @returns {Promise<{ url: string }>}
    */
@@ -435,15 +441,95 @@ export const productApi = {
     const formData = new FormData();
     formData.append("file", file);
 
-    // 使用 apiClient 發送 multipart/form-data 請求
+    // 使用 apiClient 發送 multipart/form-data 請求；後端立即回傳 uploadId，背景上傳完成後再取得網址
     const { apiClient } = await import("../utils/apiClient.js");
-    const response = await apiClient.post("/upload/image", formData, {
+    let job = await apiClient.post("/upload/image/async", formData, {
       headers: {
         "Content-Type": "multipart/form-data",
       },
     });
 
-    return { url: response.url };
+    const deadline = Date.now() + UPLOAD_POLL_TIMEOUT_MS;
+    while (job.status === "PENDING" || job.status === "PROCESSING") {
+      if (Date.now() > deadline) {
+        throw new Error("圖片上傳逾時，請稍後再試");
+      }
+      await new Promise((resolve) => setTimeout(resolve, UPLOAD_POLL_INTERVAL_MS));
+      job = await apiGet(`/upload/jobs/${job.uploadId}`);
+    }
+
+    if (job.status !== "COMPLETED") {
+      throw new Error(job.error || "圖片上傳失敗");
+    }
+    return { url: job.url };
+  },
+
+  /**
+   * 一次上傳多張顏色圖片（後端並行處理）
+   * POST /api/upload/images
+   * @param {File[]} files
+   * @param {string | string[]} colors - 單一顏色套用到全部圖片，或與 files 同順序的顏色陣列
+   * @returns {Promise<{ urls: string[]; colorImages: Record<string, string[]> }>}
+   */
+  async uploadColorImages(files, colors) {
+    const formData = new FormData();
+    files.forEach((file) => formData.append("files", file));
+    (Array.isArray(colors) ? colors : [colors]).forEach((color) =>
+      formData.append("colors", color)
+    );
+
+    const { apiClient } = await import("../utils/apiClient.js");
+    const response = await apiClient.post("/upload/images", formData, {
+      headers: {
+        "Content-Type": "multipart/form-data",
+      },
+    });
+
+    return { urls: response.urls, colorImages: response.colorImages };
+  },
+
+  /**
+   * 瀏覽器直接上傳到圖片儲存端，完成後回報後端掛到商品上（圖片不經過 API 節點）
+   * POST /api/upload/direct/ticket → 上傳到 ticket.uploadUrl → POST /api/upload/direct/confirm
+   * @param {File} file
+   * @param {string} productId
+   * @param {string} [color] - 未指定時設為主圖
+   * @returns {Promise<import('../types.js').Product>}
+   */
+  async uploadImageDirect(file, productId, color = null) {
+    const ticket = await apiPost("/upload/direct/ticket", {});
+
+    const formData = new FormData();
+    Object.entries(ticket.fields).forEach(([key, value]) =>
+      formData.append(key, value)
+    );
+    formData.append(ticket.fileField, file);
+
+    // 直接送到儲存端，不帶 API 的認證資訊
+    const uploadResponse = await fetch(ticket.uploadUrl, {
+      method: "POST",
+      body: formData,
+    });
+    const body = await uploadResponse.json();
+    if (!uploadResponse.ok) {
+      throw new Error(body?.error?.message || body?.message || "圖片上傳失敗");
+    }
+
+    // 本機模擬端點回傳 ApiResponse 包裝，Cloudinary 回傳原始欄位
+    const raw = body.data ?? body;
+    const result = {};
+    Object.entries(raw).forEach(([key, value]) => {
+      if (value !== null && typeof value !== "object") {
+        result[key] = String(value);
+      }
+    });
+
+    const backend = await apiPost("/upload/direct/confirm", {
+      productId: Number(productId),
+      color,
+      result,
+    });
+    return transformProduct(backend);
   },
 };
 
@@ -520,6 +606,26 @@ export const variantApi = {
       return false;
     }
   },
+
+  /**
+   * 訂閱到貨通知（需登入，僅限缺貨規格）
+   * POST /api/variants/:id/subscription
+   * @param {string} id
+   * @returns {Promise<void>}
+   */
+  async subscribeRestock(id) {
+    await apiPost(`/variants/${id}/subscription`, {});
+  },
+
+  /**
+   * 取消到貨通知
+   * DELETE /api/variants/:id/subscription
+   * @param {string} id
+   * @returns {Promise<void>}
+   */
+  async unsubscribeRestock(id) {
+    await apiDelete(`/variants/${id}/subscription`);
+  },
 };
 
 // ============================================
@@ -595,6 +701,24 @@ export const orderApi = {
     return transformOrder(backend);
   },
 
+  /**
+   * 結帳試算（確認價格與庫存，不建立訂單）
+   * POST /api/orders/quote
+   * @param {import('../types.js').CartItem[]} [items] 未提供時以後端購物車試算
+   * @returns {Promise<Object>}
+   */
+  async quote(items) {
+    const body = items
+      ? {
+          items: items.map((item) => ({
+            variantId: Number(item.variant.id),
+            quantity: item.quantity,
+          })),
+        }
+      : {};
+    return apiPost("/orders/quote", body);
+  },
+
   /**
    * 更新訂單狀態 (Admin)
    * PATCH /api/orders/:id/status
@@ -642,6 +766,75 @@ export const inquiryApi = {
     return backendInquiries.map(transformInquiry);
   },
 
+  /**
+   * 收件匣分頁列表 (Admin)，不含訊息與回覆內文；需要內文時再以 getById 取得
+   * GET /api/inquiries/page?status=&cursor=&size=
+   * @param {{ status?: string, cursor?: string, size?: number }} [options]
+   * @returns {Promise<{ items: import('../types.js').Inquiry[], nextCursor: string | null }>}
+   */
+  async getPage({ status, cursor, size = 20 } = {}) {
+    const params = new URLSearchParams({ size: String(size) });
+    if (status) params.set("status", status);
+    if (cursor) params.set("cursor", cursor);
+    const page = await apiGet(`/inquiries/page?${params}`);
+    return {
+      items: page.items.map(transformInquiry),
+      nextCursor: page.nextCursor ?? null,
+    };
+  },
+
+  /**
+   * 各狀態案件數量 (Admin)
+   * GET /api/inquiries/counts
+   * @returns {Promise<Record<string, number>>}
+   */
+  async getStatusCounts() {
+    return await apiGet("/inquiries/counts");
+  },
+
+  /**
+   * 搜尋詢問 (Admin)：關鍵字、Email 或案件編號
+   * GET /api/inquiries/search?q=&page=&size=
+   * @param {string} query
+   * @param {{ page?: number, size?: number }} [options]
+   * @returns {Promise<{ items: import('../types.js').Inquiry[], page: number, hasMore: boolean }>}
+   */
+  async search(query, { page = 0, size = 20 } = {}) {
+    const params = new URLSearchParams({
+      q: query,
+      page: String(page),
+      size: String(size),
+    });
+    const result = await apiGet(`/inquiries/search?${params}`);
+    return {
+      items: result.items.map(transformInquiry),
+      page: result.page,
+      hasMore: result.hasMore,
+    };
+  },
+
+  /**
+   * 取得單筆詢問完整內容 (Admin)
+   * GET /api/inquiries/:id
+   * @param {string} id
+   * @returns {Promise<import('../types.js').Inquiry>}
+   */
+  async getById(id) {
+    const backend = await apiGet(`/inquiries/${id}`);
+    return transformInquiry(backend);
+  },
+
+  /**
+   * 回覆建議 (Admin)：相似的已回覆案件與最相符的回覆模板
+   * GET /api/inquiries/:id/suggestions?limit=
+   * @param {string} id
+   * @param {number} [limit]
+   * @returns {Promise<{ similarInquiries: Array<{ id: number, caseNumber: string, subject: string, message: string, adminReply: string, score: number }>, templates: Array<{ id: number, name: string, score: number }> }>}
+   */
+  async getSuggestions(id, limit = 5) {
+    return await apiGet(`/inquiries/${id}/suggestions?limit=${limit}`);
+  },
+
   /**
    * 送出聯絡詢問
    * POST /api/inquiries
@@ -735,6 +928,15 @@ export const replyTemplateApi = {
   async delete(id) {
     return await apiDelete(`/reply-templates/${id}`);
   },
+
+  /**
+   * 以客服訊息套用模板變數 (Admin)
+   * GET /api/reply-templates/:id/render?inquiryId=
+   * @returns {Promise<string>} 回覆內容草稿
+   */
+  async render(id, inquiryId) {
+    return await apiGet(`/reply-templates/${id}/render?inquiryId=${inquiryId}`);
+  },
 };
 
 // ============================================
@@ -1098,6 +1300,24 @@ export const cartApi = {
     await apiDelete(`/cart/${cartItemId}`);
   },
 
+  /**
+   * 批次異動購物車（新增 / 更新 / 移除）
+   * PATCH /api/cart
+   * @param {Array<{ op: "ADD" | "UPDATE" | "REMOVE"; cartItemId?: string; variantId?: string; quantity?: number }>} operations
+   * @returns {Promise<import('../types.js').CartItem[]>}
+   */
+  async applyOperations(operations) {
+    const backendCartItems = await apiPatch("/cart", {
+      operations: operations.map((op) => ({
+        op: op.op,
+        cartItemId: op.cartItemId ? Number(op.cartItemId) : undefined,
+        variantId: op.variantId ? Number(op.variantId) : undefined,
+        quantity: op.quantity,
+      })),
+    });
+    return backendCartItems.map(transformCartItem);
+  },
+
   /**
    * 清空購物車
    * DELETE /api/cart
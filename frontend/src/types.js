@@ -28,6 +28,7 @@
  * @property {string} description - 商品描述
  * @property {number} price - 價格
  * @property {string} imageUrl - 圖片網址
+ * @property {string} [imageSrcset] - 主圖響應式 srcset（600w / 1200w）
  * @property {boolean} isListed - 是否上架
  * @property {string} [createdAt] - 建立時間
  * @property {ProductVariant[]} [variants] - 商品規格列表
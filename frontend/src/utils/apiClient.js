@@ -40,6 +40,34 @@ apiClient.interceptors.request.use(
   (error) => Promise.reject(error)
 );
 
+// 不觸發自動刷新的端點（本身就是登入 / 刷新流程）
+const NO_REFRESH_ENDPOINTS = ["/auth/refresh", "/auth/login", "/auth/logout"];
+
+// 同時多個請求 401 時共用同一次刷新
+let refreshPromise = null;
+
+/**
+ * 以 refresh token（HttpOnly Cookie）換發新的 access token
+ * @returns {Promise<string>}
+ */
+function refreshAccessToken() {
+  if (!refreshPromise) {
+    refreshPromise = axios
+      .post(`${API_BASE_URL}/auth/refresh`, null, { withCredentials: true })
+      .then((res) => {
+        const token = res.data?.data?.token;
+        if (token) {
+          tokenManager.setToken(token);
+        }
+        return token;
+      })
+      .finally(() => {
+        refreshPromise = null;
+      });
+  }
+  return refreshPromise;
+}
+
 // Response 攔截器 - 處理錯誤和解析 ApiResponse
 apiClient.interceptors.response.use(
   (response) => {
@@ -50,7 +78,25 @@ apiClient.interceptors.response.use(
     }
     return result.data;
   },
-  (error) => {
+  async (error) => {
+    const originalRequest = error.config;
+
+    // access token 過期：刷新一次後重送原請求
+    if (
+      error.response?.status === 401 &&
+      originalRequest &&
+      !originalRequest._retry &&
+      !NO_REFRESH_ENDPOINTS.some((url) => originalRequest.url?.startsWith(url))
+    ) {
+      originalRequest._retry = true;
+      try {
+        await refreshAccessToken();
+        return apiClient(originalRequest);
+      } catch {
+        // 刷新失敗，依原流程登出
+      }
+    }
+
     let errorMessage = "Network error";
 
     if (error.response) {
@@ -0,0 +1,10 @@
+-- 既有資料庫遷移：跨節點同步的 JWT claims 失效記錄
+USE chooseMVP;
+
+CREATE TABLE IF NOT EXISTS claims_revocations (
+    user_id BIGINT PRIMARY KEY,
+    stale_before TIMESTAMP(3) NOT NULL,
+    updated_at TIMESTAMP(3) DEFAULT CURRENT_TIMESTAMP(3),
+    INDEX idx_updated_at (updated_at),
+    INDEX idx_stale_before (stale_before)
+);
@@ -0,0 +1,5 @@
+-- 既有資料庫遷移：衍生圖轉檔的節點租約（多節點同時收到相同內容時只由一個節點轉檔）
+USE chooseMVP;
+
+ALTER TABLE image_assets
+    ADD COLUMN claimed_until TIMESTAMP NULL AFTER status;
@@ -0,0 +1,6 @@
+-- 既有資料庫遷移：圖片上傳工作記錄暫存檔所在的節點（重啟時只將本節點未完成的工作標記為失敗）
+USE chooseMVP;
+
+ALTER TABLE image_upload_jobs
+    ADD COLUMN node_id VARCHAR(100) AFTER error_message,
+    ADD INDEX idx_node_status (node_id, status);
@@ -0,0 +1,5 @@
+-- 既有資料庫遷移：客服案件全文檢索索引（ngram 斷詞，預設 ngram_token_size = 2）
+USE chooseMVP;
+
+ALTER TABLE contact_messages
+    ADD FULLTEXT INDEX ft_content (subject, message, admin_reply) WITH PARSER ngram;
@@ -0,0 +1,12 @@
+-- 既有資料庫遷移：建立各狀態客服案件計數表並以目前資料初始化
+USE chooseMVP;
+
+CREATE TABLE IF NOT EXISTS inquiry_status_counts (
+    status VARCHAR(20) PRIMARY KEY,
+    message_count BIGINT NOT NULL DEFAULT 0
+);
+
+-- 可重複執行：以實際數量覆蓋計數（也可用於校正）
+INSERT INTO inquiry_status_counts (status, message_count)
+SELECT status, COUNT(*) FROM contact_messages GROUP BY status
+ON DUPLICATE KEY UPDATE message_count = VALUES(message_count);
@@ -0,0 +1,6 @@
+-- 既有資料庫遷移：商品主圖 srcset 欄位與依圖片網址回填 srcset 用的索引
+USE chooseMVP;
+
+ALTER TABLE products
+    ADD COLUMN image_srcset VARCHAR(1000) AFTER image_url,
+    ADD INDEX idx_image_url (image_url);
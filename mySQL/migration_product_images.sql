@@ -0,0 +1,29 @@
+-- 既有資料庫遷移：products.color_images (JSON TEXT) -> product_images
+-- 注意：JSON_KEYS 會依 MySQL JSON 正規化後的鍵順序輸出，顏色的排列順序可能與原 JSON 字串不同
+USE chooseMVP;
+
+CREATE TABLE IF NOT EXISTS product_images (
+    image_id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    product_id BIGINT NOT NULL,
+    color VARCHAR(50) NOT NULL,
+    ordinal INT NOT NULL,
+    url VARCHAR(500) NOT NULL,
+    FOREIGN KEY (product_id) REFERENCES products(product_id) ON DELETE CASCADE,
+    UNIQUE KEY uk_product_ordinal (product_id, ordinal),
+    INDEX idx_product_color (product_id, color)
+);
+
+-- 將既有的 color_images JSON 拆成 product_images 資料列，之後移除舊欄位
+INSERT INTO product_images (product_id, color, ordinal, url)
+SELECT p.product_id,
+       k.color,
+       ROW_NUMBER() OVER (PARTITION BY p.product_id ORDER BY k.key_idx, u.url_idx) - 1,
+       u.url
+FROM products p
+CROSS JOIN JSON_TABLE(JSON_KEYS(p.color_images), '$[*]'
+    COLUMNS (key_idx FOR ORDINALITY, color VARCHAR(50) PATH '$')) k
+CROSS JOIN JSON_TABLE(JSON_EXTRACT(p.color_images, CONCAT('$."', k.color, '"')), '$[*]'
+    COLUMNS (url_idx FOR ORDINALITY, url VARCHAR(500) PATH '$')) u
+WHERE p.color_images IS NOT NULL AND JSON_VALID(p.color_images);
+
+ALTER TABLE products DROP COLUMN color_images;
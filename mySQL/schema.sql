@@ -4,14 +4,27 @@ USE chooseMVP;
 
 SET FOREIGN_KEY_CHECKS = 0;
 
+DROP TABLE IF EXISTS inquiry_status_counts;
+DROP TABLE IF EXISTS id_sequences;
+DROP TABLE IF EXISTS image_assets;
+DROP TABLE IF EXISTS image_upload_jobs;
+DROP TABLE IF EXISTS stock_subscriptions;
+DROP TABLE IF EXISTS order_status_notifications;
+DROP TABLE IF EXISTS mail_outbox;
+DROP TABLE IF EXISTS scheduler_leases;
 DROP TABLE IF EXISTS reply_templates;
 DROP TABLE IF EXISTS contact_messages;
 DROP TABLE IF EXISTS order_items;
 DROP TABLE IF EXISTS orders;
 DROP TABLE IF EXISTS cart_items;
+DROP TABLE IF EXISTS product_images;
 DROP TABLE IF EXISTS product_variants;
 DROP TABLE IF EXISTS products;
 DROP TABLE IF EXISTS categories;
+DROP TABLE IF EXISTS claims_revocations;
+DROP TABLE IF EXISTS revoked_tokens;
+DROP TABLE IF EXISTS refresh_tokens;
+DROP TABLE IF EXISTS token_nonces;
 DROP TABLE IF EXISTS verification_tokens;
 DROP TABLE IF EXISTS users;
 
@@ -42,6 +55,47 @@ CREATE TABLE verification_tokens (
     INDEX idx_user_type (user_id, type)
 );
 
+-- 簽章 token（驗證信 / 重設密碼 / Magic Link）的一次性使用狀態，每位使用者每種類型一列
+CREATE TABLE token_nonces (
+    user_id BIGINT NOT NULL,
+    type VARCHAR(20) NOT NULL,
+    nonce BIGINT NOT NULL,
+    PRIMARY KEY (user_id, type),
+    FOREIGN KEY (user_id) REFERENCES users(user_id) ON DELETE CASCADE
+);
+
+CREATE TABLE refresh_tokens (
+    refresh_token_id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    token_hash CHAR(64) NOT NULL UNIQUE,
+    user_id BIGINT NOT NULL,
+    family_id VARCHAR(36) NOT NULL,
+    expires_at TIMESTAMP NOT NULL,
+    revoked_at TIMESTAMP NULL,
+    replaced_at TIMESTAMP NULL,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    FOREIGN KEY (user_id) REFERENCES users(user_id) ON DELETE CASCADE,
+    INDEX idx_user (user_id),
+    INDEX idx_family (family_id),
+    INDEX idx_expires_at (expires_at)
+);
+
+CREATE TABLE revoked_tokens (
+    jti VARCHAR(36) PRIMARY KEY,
+    expires_at TIMESTAMP NOT NULL,
+    revoked_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    INDEX idx_revoked_at (revoked_at),
+    INDEX idx_expires_at (expires_at)
+);
+
+-- 角色變更 / 刪除帳號後，stale_before 以前簽發的 JWT 不再信任其 claims（各節點依 updated_at 增量同步）
+CREATE TABLE claims_revocations (
+    user_id BIGINT PRIMARY KEY,
+    stale_before TIMESTAMP(3) NOT NULL,
+    updated_at TIMESTAMP(3) DEFAULT CURRENT_TIMESTAMP(3),
+    INDEX idx_updated_at (updated_at),
+    INDEX idx_stale_before (stale_before)
+);
+
 CREATE TABLE categories (
     category_id BIGINT AUTO_INCREMENT PRIMARY KEY,
     name VARCHAR(50) NOT NULL,
@@ -56,6 +110,7 @@ CREATE TABLE products (
     description TEXT,
     price DECIMAL(10, 2) NOT NULL,
     image_url VARCHAR(255),
+    image_srcset VARCHAR(1000),
     color_images TEXT,
     is_listed BOOLEAN DEFAULT TRUE,
     is_featured BOOLEAN DEFAULT FALSE,
@@ -63,7 +118,8 @@ CREATE TABLE products (
     FOREIGN KEY (category_id) REFERENCES categories(category_id),
     INDEX idx_category_listed (category_id, is_listed),
     INDEX idx_name (name),
-    INDEX idx_created_at (created_at)
+    INDEX idx_created_at (created_at),
+    INDEX idx_image_url (image_url)
 );
 
 CREATE TABLE product_variants (
@@ -79,6 +135,18 @@ CREATE TABLE product_variants (
     INDEX idx_stock (stock)
 );
 
+-- 商品顏色圖片（取代 products.color_images JSON，ordinal 為商品內顯示順序）
+CREATE TABLE product_images (
+    image_id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    product_id BIGINT NOT NULL,
+    color VARCHAR(50) NOT NULL,
+    ordinal INT NOT NULL,
+    url VARCHAR(500) NOT NULL,
+    FOREIGN KEY (product_id) REFERENCES products(product_id) ON DELETE CASCADE,
+    UNIQUE KEY uk_product_ordinal (product_id, ordinal),
+    INDEX idx_product_color (product_id, color)
+);
+
 CREATE TABLE cart_items (
     cart_item_id BIGINT AUTO_INCREMENT PRIMARY KEY,
     user_id BIGINT NOT NULL,
@@ -140,7 +208,59 @@ CREATE TABLE contact_messages (
     INDEX idx_case_number (case_number),
     INDEX idx_status_created (status, created_at),
     INDEX idx_email (email),
-    INDEX idx_ip_created (ip_address, created_at)
+    INDEX idx_ip_created (ip_address, created_at),
+    -- 全文檢索（ngram 斷詞支援中文）
+    FULLTEXT INDEX ft_content (subject, message, admin_reply) WITH PARSER ngram
+);
+
+-- 訂單狀態通知（待彙整成每位使用者一封摘要郵件）
+CREATE TABLE order_status_notifications (
+    notification_id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    user_id BIGINT NOT NULL,
+    order_id BIGINT NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    processed_at TIMESTAMP NULL,
+    INDEX idx_pending_user (processed_at, user_id)
+);
+
+-- 到貨通知訂閱（notified_at 為 NULL 表示待通知）
+CREATE TABLE stock_subscriptions (
+    subscription_id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    variant_id BIGINT NOT NULL,
+    user_id BIGINT NOT NULL,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    notified_at TIMESTAMP NULL,
+    UNIQUE KEY uk_variant_user (variant_id, user_id),
+    INDEX idx_pending_variant (variant_id, notified_at, subscription_id),
+    INDEX idx_user (user_id),
+    FOREIGN KEY (variant_id) REFERENCES product_variants(variant_id) ON DELETE CASCADE,
+    FOREIGN KEY (user_id) REFERENCES users(user_id) ON DELETE CASCADE
+);
+
+-- 排程工作租約（多節點時只由持有租約的節點執行）
+CREATE TABLE scheduler_leases (
+    name VARCHAR(64) PRIMARY KEY,
+    owner VARCHAR(100) NOT NULL,
+    lease_until TIMESTAMP(3) NOT NULL
+);
+
+-- 待寄送郵件（transactional outbox，由背景排程寄出）
+CREATE TABLE mail_outbox (
+    mail_id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    recipient VARCHAR(100) NOT NULL,
+    subject VARCHAR(200) NOT NULL,
+    body TEXT NOT NULL,
+    html_body TEXT,
+    category VARCHAR(30) NOT NULL,
+    status ENUM('PENDING', 'SENDING', 'SENT', 'DEAD') NOT NULL DEFAULT 'PENDING',
+    attempts INT NOT NULL DEFAULT 0,
+    next_attempt_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    locked_until TIMESTAMP NULL,
+    last_error VARCHAR(500),
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    sent_at TIMESTAMP NULL,
+    INDEX idx_status_next_attempt (status, next_attempt_at)
 );
 
 -- 回覆模板表
@@ -154,6 +274,51 @@ CREATE TABLE reply_templates (
     FOREIGN KEY (created_by) REFERENCES users(user_id) ON DELETE SET NULL
 );
 
+-- 非同步圖片上傳工作（過期後由清除排程刪除）
+CREATE TABLE image_upload_jobs (
+    upload_id VARCHAR(36) PRIMARY KEY,
+    status VARCHAR(20) NOT NULL DEFAULT 'PENDING',
+    original_filename VARCHAR(255),
+    url VARCHAR(500),
+    thumbnail_url VARCHAR(500),
+    large_url VARCHAR(500),
+    error_message VARCHAR(500),
+    node_id VARCHAR(100),
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    expires_at TIMESTAMP NOT NULL,
+    INDEX idx_expires_at (expires_at),
+    INDEX idx_node_status (node_id, status)
+);
+
+-- 圖片資產（以內容 SHA-256 去重）與 600px / 1200px 衍生圖
+CREATE TABLE image_assets (
+    asset_id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    content_hash CHAR(64) NOT NULL UNIQUE,
+    content_type VARCHAR(50) NOT NULL,
+    size_bytes BIGINT NOT NULL,
+    url VARCHAR(500) NOT NULL,
+    url_600 VARCHAR(500),
+    url_1200 VARCHAR(500),
+    width INT NULL,
+    status VARCHAR(20) NOT NULL DEFAULT 'PROCESSING',
+    claimed_until TIMESTAMP NULL,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    INDEX idx_url (url)
+);
+
+-- 具名序號計數器（客服案件編號等，各節點以區段方式保留號碼）
+CREATE TABLE id_sequences (
+    name VARCHAR(64) PRIMARY KEY,
+    next_value BIGINT NOT NULL
+);
+
+-- 各狀態客服案件數量（建立 / 狀態變更 / 刪除時增量維護）
+CREATE TABLE inquiry_status_counts (
+    status VARCHAR(20) PRIMARY KEY,
+    message_count BIGINT NOT NULL DEFAULT 0
+);
+
 -- 預設回覆模板
 INSERT INTO reply_templates (name, content, created_by) VALUES
 ('一般問候', '親愛的 {name}，\n\n感謝您的來信詢問。\n\n{reply}\n\n如有任何其他問題，歡迎隨時與我們聯繫。\n\nChoose 客服團隊', 1),
@@ -209,6 +374,21 @@ INSERT INTO products (category_id, name, description, price, image_url, color_im
 (1, '寬鬆棉質T恤', '採用時下流行的 Oversize 廓形與落肩設計，不僅修飾身型，更能輕鬆打造隨興且具層次感的潮流街頭風格。優質棉質面料，柔軟透氣。', 680.00, 'https://res.cloudinary.com/dtowrsbhe/image/upload/v1766860665/OVERSIZED_COTTON_T_SHIRT_a2ir.png', '{"White": ["https://res.cloudinary.com/dtowrsbhe/image/upload/v1766860675/OVERSIZED_COTTON_T_SHIRT_a2ir_Back.png", "https://res.cloudinary.com/dtowrsbhe/image/upload/v1766860677/OVERSIZED_COTTON_T_SHIRT_a2ir_Detail.png"], "Morandi Green": ["https://res.cloudinary.com/dtowrsbhe/image/upload/v1766860668/OVERSIZED_COTTON_T_SHIRT_a2ir_%E8%8E%AB%E8%98%AD%E8%BF%AA%E7%B6%A0.png"], "Spring Yellow": ["https://res.cloudinary.com/dtowrsbhe/image/upload/v1766860670/OVERSIZED_COTTON_T_SHIRT_a2ir_%E6%98%A5%E5%A4%A9%E9%BB%83.png"], "Moon Orange": ["https://res.cloudinary.com/dtowrsbhe/image/upload/v1766860672/OVERSIZED_COTTON_T_SHIRT_a2ir_%E6%9C%88%E4%BA%AE%E6%A9%98.png"]}', TRUE, DATE_SUB(NOW(), INTERVAL 1 DAY)),
 (1, '寬鬆棉質羅紋長袖T恤', '採用獨特的華夫格面料，細密的立體紋理賦予衣物豐富的觸感與視覺層次，兼具透氣性與保暖度。寬鬆版型，舒適百搭。', 880.00, 'https://res.cloudinary.com/dtowrsbhe/image/upload/v1766860679/%E5%AF%AC%E9%AC%86%E6%A3%89%E8%B3%AA%E7%BE%85%E7%B4%8B%E9%95%B7%E8%A2%96T%E6%81%A4_3o0bt.png', '{"Black": ["https://res.cloudinary.com/dtowrsbhe/image/upload/v1766860689/%E5%AF%AC%E9%AC%86%E6%A3%89%E8%B3%AA%E7%BE%85%E7%B4%8B%E9%95%B7%E8%A2%96T%E6%81%A4_3o0bt_Side.png", "https://res.cloudinary.com/dtowrsbhe/image/upload/v1766860691/%E5%AF%AC%E9%AC%86%E6%A3%89%E8%B3%AA%E7%BE%85%E7%B4%8B%E9%95%B7%E8%A2%96T%E6%81%A4_3o0bt_Back.png", "https://res.cloudinary.com/dtowrsbhe/image/upload/v1766860693/%E5%AF%AC%E9%AC%86%E6%A3%89%E8%B3%AA%E7%BE%85%E7%B4%8B%E9%95%B7%E8%A2%96T%E6%81%A4_3o0bt_Detail.png"], "Morandi Green": ["https://res.cloudinary.com/dtowrsbhe/image/upload/v1766860681/%E5%AF%AC%E9%AC%86%E6%A3%89%E8%B3%AA%E7%BE%85%E7%B4%8B%E9%95%B7%E8%A2%96T%E6%81%A4_3o0bt_%E8%8E%AB%E8%98%AD%E8%BF%AA%E7%B6%A0.png"], "Autumn Brown": ["https://res.cloudinary.com/dtowrsbhe/image/upload/v1766860683/%E5%AF%AC%E9%AC%86%E6%A3%89%E8%B3%AA%E7%BE%85%E7%B4%8B%E9%95%B7%E8%A2%96T%E6%81%A4_3o0bt_%E7%A7%8B%E5%A4%A9%E8%A4%90%E8%89%B2.png"], "Winter Gray": ["https://res.cloudinary.com/dtowrsbhe/image/upload/v1766860685/%E5%AF%AC%E9%AC%86%E6%A3%89%E8%B3%AA%E7%BE%85%E7%B4%8B%E9%95%B7%E8%A2%96T%E6%81%A4_3o0bt_%E5%86%AC%E5%A4%A9%E7%81%B0%E7%99%BD.png"], "Light Burgundy": ["https://res.cloudinary.com/dtowrsbhe/image/upload/v1766860688/%E5%AF%AC%E9%AC%86%E6%A3%89%E8%B3%AA%E7%BE%85%E7%B4%8B%E9%95%B7%E8%A2%96T%E6%81%A4_3o0bt_%E6%B7%BA%E9%85%92%E7%B4%85.png"]}', TRUE, DATE_SUB(NOW(), INTERVAL 1 DAY));
 
+-- 將種子資料的 color_images JSON 拆成 product_images 資料列，之後移除舊欄位
+INSERT INTO product_images (product_id, color, ordinal, url)
+SELECT p.product_id,
+       k.color,
+       ROW_NUMBER() OVER (PARTITION BY p.product_id ORDER BY k.key_idx, u.url_idx) - 1,
+       u.url
+FROM products p
+CROSS JOIN JSON_TABLE(JSON_KEYS(p.color_images), '$[*]'
+    COLUMNS (key_idx FOR ORDINALITY, color VARCHAR(50) PATH '$')) k
+CROSS JOIN JSON_TABLE(JSON_EXTRACT(p.color_images, CONCAT('$."', k.color, '"')), '$[*]'
+    COLUMNS (url_idx FOR ORDINALITY, url VARCHAR(500) PATH '$')) u
+WHERE p.color_images IS NOT NULL AND JSON_VALID(p.color_images);
+
+ALTER TABLE products DROP COLUMN color_images;
+
 INSERT INTO product_variants (product_id, sku_code, color, size, stock, created_at) VALUES
 -- 商品1: 修身羊毛針織高領上衣 (Morandi Green, Burgundy, Gray)
 (1, 'P1-MORA-S-000001', 'Morandi Green', 'S', 15, DATE_SUB(NOW(), INTERVAL 20 DAY)),
@@ -421,10 +601,18 @@ INSERT INTO contact_messages (case_number, user_id, name, email, subject, messag
 ('CS-0005', NULL, '楊志明', 'ming.yang@choose.com', '尺寸選擇', '商品尺寸如何選擇？', 'PENDING', NULL, NULL, '192.168.1.104', DATE_SUB(NOW(), INTERVAL 3 DAY), NULL),
 ('CS-0006', NULL, '許雅雯', 'wendy.hsu@choose.com', '門市詢問', '請問有實體店面嗎？', 'PENDING', NULL, NULL, '192.168.1.105', DATE_SUB(NOW(), INTERVAL 1 DAY), NULL);
 
+-- 案件編號從種子資料之後接續
+INSERT INTO id_sequences (name, next_value) VALUES ('contact_case_number', 7);
+
+-- 依種子資料建立各狀態計數
+INSERT INTO inquiry_status_counts (status, message_count)
+SELECT status, COUNT(*) FROM contact_messages GROUP BY status;
+
 SELECT 'users' AS table_name, COUNT(*) AS count FROM users
 UNION ALL SELECT 'categories', COUNT(*) FROM categories
 UNION ALL SELECT 'products', COUNT(*) FROM products
 UNION ALL SELECT 'product_variants', COUNT(*) FROM product_variants
+UNION ALL SELECT 'product_images', COUNT(*) FROM product_images
 UNION ALL SELECT 'cart_items', COUNT(*) FROM cart_items
 UNION ALL SELECT 'orders', COUNT(*) FROM orders
 UNION ALL SELECT 'order_items', COUNT(*) FROM order_items